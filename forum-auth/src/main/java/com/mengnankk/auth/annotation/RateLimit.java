@@ -35,6 +35,11 @@ public @interface RateLimit {
      */
     String message() default "";
 
+    /**
+     * 限流算法
+     */
+    Algorithm algorithm() default Algorithm.FIXED_WINDOW;
+
     /**
      * 限流类型枚举
      */
@@ -59,4 +64,29 @@ public @interface RateLimit {
          */
         IP_AND_METHOD
     }
+
+    /**
+     * 限流算法枚举
+     */
+    enum Algorithm {
+        /**
+         * 固定窗口：实现最简单，窗口边界处可能出现两倍突发
+         */
+        FIXED_WINDOW,
+
+        /**
+         * 滑动窗口日志：精确限流，内存占用与窗口内请求数成正比
+         */
+        SLIDING_WINDOW_LOG,
+
+        /**
+         * 滑动窗口计数：按上一窗口加权近似，内存占用固定
+         */
+        SLIDING_WINDOW_COUNTER,
+
+        /**
+         * 令牌桶：平滑补充，允许不超过容量的突发
+         */
+        TOKEN_BUCKET
+    }
 }
@@ -1,18 +1,26 @@
 package com.mengnankk.auth.aspect;
 
 import com.mengnankk.auth.annotation.RateLimit;
-import com.mengnankk.auth.exception.AuthException;
+import com.mengnankk.auth.exception.RateLimitException;
+import com.mengnankk.auth.security.CustomUserDetails;
+import com.mengnankk.auth.util.ClientIpResolver;
+import com.mengnankk.auth.ratelimit.RateLimitResult;
+import com.mengnankk.auth.ratelimit.RateLimitTierResolver;
+import com.mengnankk.auth.ratelimit.TieredRateLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -24,7 +32,14 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class RateLimitAspect {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    /** 限额响应头 */
+    public static final String HEADER_LIMIT = "X-RateLimit-Limit";
+    /** 剩余配额响应头 */
+    public static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+
+    private final TieredRateLimiter tieredRateLimiter;
+    private final RateLimitTierResolver tierResolver;
+    private final ClientIpResolver clientIpResolver;
 
     /**
      * 限流前置通知
@@ -38,100 +53,79 @@ public class RateLimitAspect {
         }
         
         HttpServletRequest request = attributes.getRequest();
-        String key = generateKey(request, rateLimit);
+        CustomUserDetails currentUser = rateLimit.limitType() == RateLimit.LimitType.USER ? getCurrentUser() : null;
+        String key = generateKey(request, rateLimit, currentUser);
+        // 已登录用户按角色档位放大限额
+        int limit = currentUser != null
+                ? tierResolver.resolveLimit(rateLimit.count(), currentUser.getRoleSet())
+                : rateLimit.count();
         
-        // 获取当前计数
-        Integer count = (Integer) redisTemplate.opsForValue().get(key);
+        RateLimitResult result;
+        try {
+            result = tieredRateLimiter.tryAcquire(key, rateLimit.algorithm(), limit,
+                    TimeUnit.SECONDS.toMillis(rateLimit.time()));
+        } catch (Exception e) {
+            // 限流组件不可用时放行，避免影响正常业务
+            log.error("限流检查失败，默认放行: key={}, error={}", key, e.getMessage());
+            return;
+        }
         
-        if (count == null) {
-            // 第一次访问，设置计数为1
-            redisTemplate.opsForValue().set(key, 1, rateLimit.time(), TimeUnit.SECONDS);
-        } else if (count < rateLimit.count()) {
-            // 未达到限制，计数加1
-            redisTemplate.opsForValue().increment(key);
-        } else {
-            // 达到限制，抛出异常
+        HttpServletResponse response = attributes.getResponse();
+        if (response != null) {
+            response.setHeader(HEADER_LIMIT, String.valueOf(result.getLimit()));
+            response.setHeader(HEADER_REMAINING, String.valueOf(result.getRemaining()));
+        }
+        
+        if (!result.isAllowed()) {
+            long retryAfterSeconds = Math.max(result.getRetryAfterSeconds(), 1);
+            if (response != null) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            }
+            
             String message = rateLimit.message().isEmpty() ? 
-                    String.format("访问过于频繁，请%d秒后再试", rateLimit.time()) : 
+                    String.format("访问过于频繁，请%d秒后再试", retryAfterSeconds) : 
                     rateLimit.message();
             
-            log.warn("限流触发: key={}, count={}, limit={}", key, count, rateLimit.count());
-            throw new AuthException(message);
+            log.warn("限流触发: key={}, algorithm={}, limit={}", key, rateLimit.algorithm(), limit);
+            throw new RateLimitException(message, retryAfterSeconds);
         }
     }
 
     /**
      * 生成限流Key
      */
-    private String generateKey(HttpServletRequest request, RateLimit rateLimit) {
-        String prefix = "rate_limit:";
+    private String generateKey(HttpServletRequest request, RateLimit rateLimit, CustomUserDetails currentUser) {
         String suffix = "";
         
         switch (rateLimit.limitType()) {
             case IP:
-                suffix = getClientIpAddr(request);
+                suffix = clientIpResolver.getClientIp(request);
                 break;
             case USER:
                 // 如果有用户信息，使用用户ID，否则使用IP
-                String userId = getCurrentUserId();
-                suffix = userId != null ? "user_" + userId : getClientIpAddr(request);
+                suffix = currentUser != null ? "user_" + currentUser.getUserId() : clientIpResolver.getClientIp(request);
                 break;
             case METHOD:
                 suffix = request.getMethod() + "_" + request.getRequestURI();
                 break;
             case IP_AND_METHOD:
-                suffix = getClientIpAddr(request) + "_" + request.getMethod() + "_" + request.getRequestURI();
+                suffix = clientIpResolver.getClientIp(request) + "_" + request.getMethod() + "_" + request.getRequestURI();
                 break;
             default:
-                suffix = getClientIpAddr(request);
-        }
-        
-        return prefix + rateLimit.key() + ":" + suffix;
-    }
-
-    /**
-     * 获取客户端IP地址
-     */
-    private String getClientIpAddr(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
-        }
-        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
-        }
-        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_CLIENT_IP");
-        }
-        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_X_FORWARDED_FOR");
-        }
-        if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
-        }
-        
-        // 如果是多级代理，获取第一个IP
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
+                suffix = clientIpResolver.getClientIp(request);
         }
         
-        return ip;
+        return rateLimit.key() + ":" + suffix;
     }
 
     /**
-     * 获取当前用户ID
+     * 获取当前登录用户
      */
-    private String getCurrentUserId() {
-        try {
-            // 这里可以从SecurityContext中获取用户信息
-            // SecurityContext context = SecurityContextHolder.getContext();
-            // Authentication authentication = context.getAuthentication();
-            // if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails) {
-            //     return ((CustomUserDetails) authentication.getPrincipal()).getUserId().toString();
-            // }
-            return null;
-        } catch (Exception e) {
-            return null;
+    private CustomUserDetails getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails userDetails) {
+            return userDetails;
         }
+        return null;
     }
 }
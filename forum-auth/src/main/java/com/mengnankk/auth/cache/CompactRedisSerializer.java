@@ -0,0 +1,342 @@
+package com.mengnankk.auth.cache;
+
+import com.mengnankk.auth.entity.User;
+import com.mengnankk.auth.security.UserAuthSnapshot;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 紧凑Redis值序列化器
+ * 热点缓存类型（用户、角色/权限列表、用户认证快照、字符串）按固定字段顺序编码为二进制，不写类名和字段名；
+ * 其他类型及无法紧凑编码的值交给后备序列化器（Jackson）。
+ * 格式：魔数(1字节) + 格式版本(1字节) + 类型码(1字节) + 字段。魔数不可能出现在JSON开头，读取时据此区分两种格式，
+ * 因此旧数据无需迁移。读取到更高格式版本（回滚场景）时按未命中处理，由调用方回源后以当前版本覆盖。
+ * 滚动升级时先关闭紧凑写入，所有节点都能读取新格式后再开启。
+ */
+@Slf4j
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    /** 紧凑格式魔数 */
+    static final byte MAGIC = (byte) 0xAC;
+
+    /** 当前格式版本 */
+    static final byte FORMAT_VERSION = 1;
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_STRING_LIST = 2;
+    private static final byte TYPE_USER = 3;
+    private static final byte TYPE_AUTH_SNAPSHOT = 4;
+
+    private static final int HEADER_SIZE = 3;
+
+    /** 常见用户对象编码后的长度，用作输出缓冲区初始容量 */
+    private static final int INITIAL_BUFFER_SIZE = 128;
+
+    private final RedisSerializer<Object> fallback;
+    private final boolean compactWriteEnabled;
+    private final DistributionSummary compactSizeSummary;
+    private final DistributionSummary fallbackSizeSummary;
+
+    public CompactRedisSerializer(RedisSerializer<Object> fallback, boolean compactWriteEnabled,
+                                  MeterRegistry meterRegistry) {
+        this.fallback = fallback;
+        this.compactWriteEnabled = compactWriteEnabled;
+        this.compactSizeSummary = DistributionSummary.builder("auth.redis.value.size")
+                .baseUnit("bytes")
+                .tag("encoding", "compact")
+                .register(meterRegistry);
+        this.fallbackSizeSummary = DistributionSummary.builder("auth.redis.value.size")
+                .baseUnit("bytes")
+                .tag("encoding", "json")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        if (compactWriteEnabled) {
+            byte[] compact = encode(value);
+            if (compact != null) {
+                compactSizeSummary.record(compact.length);
+                return compact;
+            }
+        }
+
+        byte[] bytes = fallback.serialize(value);
+        if (bytes != null) {
+            fallbackSizeSummary.record(bytes.length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_SIZE) {
+            throw new SerializationException("紧凑格式数据不完整");
+        }
+
+        int version = bytes[1] & 0xFF;
+        if (version > FORMAT_VERSION) {
+            log.debug("不支持的紧凑格式版本，按未命中处理: version={}", version);
+            return null;
+        }
+
+        byte type = bytes[2];
+        if (type == TYPE_STRING) {
+            return new String(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, StandardCharsets.UTF_8);
+        }
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE))) {
+            return switch (type) {
+                case TYPE_STRING_LIST -> readStringList(in);
+                case TYPE_USER -> readUser(in);
+                case TYPE_AUTH_SNAPSHOT -> readSnapshot(in);
+                default -> throw new SerializationException("未知的紧凑格式类型: " + type);
+            };
+        } catch (IOException e) {
+            throw new SerializationException("紧凑格式解码失败", e);
+        }
+    }
+
+    /**
+     * 紧凑编码，不支持的值返回null
+     */
+    private byte[] encode(Object value) {
+        if (value instanceof String s) {
+            byte[] text = s.getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = Arrays.copyOf(header(TYPE_STRING), HEADER_SIZE + text.length);
+            System.arraycopy(text, 0, bytes, HEADER_SIZE, text.length);
+            return bytes;
+        }
+
+        byte type;
+        if (value instanceof List<?> list && isStringList(list)) {
+            type = TYPE_STRING_LIST;
+        } else if (value instanceof User user && isCompactUser(user)) {
+            type = TYPE_USER;
+        } else if (value instanceof UserAuthSnapshot) {
+            type = TYPE_AUTH_SNAPSHOT;
+        } else {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(header(type));
+            switch (type) {
+                case TYPE_STRING_LIST -> writeStringList(out, (List<?>) value);
+                case TYPE_USER -> writeUser(out, (User) value);
+                default -> writeSnapshot(out, (UserAuthSnapshot) value);
+            }
+        } catch (IOException e) {
+            // 超长字段等情况交给后备序列化器
+            log.debug("紧凑编码失败，使用后备序列化: type={}, error={}", type, e.getMessage());
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] header(byte type) {
+        return new byte[]{MAGIC, FORMAT_VERSION, type};
+    }
+
+    private static boolean isStringList(List<?> list) {
+        for (Object element : list) {
+            if (!(element instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 仅编码不含关联对象的用户（缓存中的用户均为单表查询结果）
+     */
+    private static boolean isCompactUser(User user) {
+        return isEmpty(user.getRoles()) && isEmpty(user.getPermissions()) && isEmpty(user.getOauth2Accounts());
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    /**
+     * 用户字段（v1），与实体上的@JsonIgnore保持一致，不写入密码
+     */
+    private static void writeUser(DataOutputStream out, User user) throws IOException {
+        writeLong(out, user.getId());
+        writeString(out, user.getUsername());
+        writeString(out, user.getEmail());
+        writeString(out, user.getNickname());
+        writeString(out, user.getAvatar());
+        writeString(out, user.getPhone());
+        writeInt(out, user.getStatus());
+        writeInt(out, user.getEmailVerified());
+        writeInt(out, user.getPhoneVerified());
+        writeDateTime(out, user.getLastLoginTime());
+        writeString(out, user.getLastLoginIp());
+        writeInt(out, user.getLoginCount());
+        writeDateTime(out, user.getCreatedTime());
+        writeDateTime(out, user.getUpdatedTime());
+        writeInt(out, user.getDeleted());
+    }
+
+    private static User readUser(DataInputStream in) throws IOException {
+        User user = new User();
+        user.setId(readLong(in));
+        user.setUsername(readString(in));
+        user.setEmail(readString(in));
+        user.setNickname(readString(in));
+        user.setAvatar(readString(in));
+        user.setPhone(readString(in));
+        user.setStatus(readInt(in));
+        user.setEmailVerified(readInt(in));
+        user.setPhoneVerified(readInt(in));
+        user.setLastLoginTime(readDateTime(in));
+        user.setLastLoginIp(readString(in));
+        user.setLoginCount(readInt(in));
+        user.setCreatedTime(readDateTime(in));
+        user.setUpdatedTime(readDateTime(in));
+        user.setDeleted(readInt(in));
+        return user;
+    }
+
+    /**
+     * 用户认证快照字段（v1）
+     */
+    private static void writeSnapshot(DataOutputStream out, UserAuthSnapshot snapshot) throws IOException {
+        writeLong(out, snapshot.getUserId());
+        writeString(out, snapshot.getUsername());
+        writeString(out, snapshot.getEmail());
+        writeString(out, snapshot.getPhone());
+        writeString(out, snapshot.getNickname());
+        writeString(out, snapshot.getAvatar());
+        writeInt(out, snapshot.getStatus());
+        writeInt(out, snapshot.getEmailVerified());
+        writeInt(out, snapshot.getPhoneVerified());
+        writeNullableStringList(out, snapshot.getRoles());
+        writeNullableStringList(out, snapshot.getPermissions());
+        out.writeLong(snapshot.getTokensValidAfter());
+        out.writeLong(snapshot.getAuthVersion());
+    }
+
+    private static UserAuthSnapshot readSnapshot(DataInputStream in) throws IOException {
+        UserAuthSnapshot snapshot = new UserAuthSnapshot();
+        snapshot.setUserId(readLong(in));
+        snapshot.setUsername(readString(in));
+        snapshot.setEmail(readString(in));
+        snapshot.setPhone(readString(in));
+        snapshot.setNickname(readString(in));
+        snapshot.setAvatar(readString(in));
+        snapshot.setStatus(readInt(in));
+        snapshot.setEmailVerified(readInt(in));
+        snapshot.setPhoneVerified(readInt(in));
+        snapshot.setRoles(readNullableStringList(in));
+        snapshot.setPermissions(readNullableStringList(in));
+        snapshot.setTokensValidAfter(in.readLong());
+        snapshot.setAuthVersion(in.readLong());
+        return snapshot;
+    }
+
+    private static void writeStringList(DataOutputStream out, List<?> list) throws IOException {
+        out.writeInt(list.size());
+        for (Object element : list) {
+            out.writeUTF((String) element);
+        }
+    }
+
+    private static List<String> readStringList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(in.readUTF());
+        }
+        return list;
+    }
+
+    private static void writeNullableStringList(DataOutputStream out, List<String> list) throws IOException {
+        out.writeBoolean(list != null);
+        if (list != null) {
+            if (!isStringList(list)) {
+                throw new IOException("列表包含空元素");
+            }
+            writeStringList(out, list);
+        }
+    }
+
+    private static List<String> readNullableStringList(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readStringList(in) : null;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeInt(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    private static Integer readInt(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * 时间按UTC纪元秒和纳秒写入，仅用于往返还原，不涉及时区换算
+     */
+    private static void writeDateTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+}
@@ -0,0 +1,399 @@
+package com.mengnankk.auth.cache;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Counter;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * 二级缓存
+ * L1为进程内Caffeine缓存（容量上限、过期、提前异步刷新），L2为Redis，最终回源数据库。
+ * 失效操作会同时删除Redis中的Key并通过发布订阅通知所有节点清除L1。
+ * 开启负缓存时，回源不存在的Key会以占位值写入Redis（较短过期时间）并在L1中缓存空标记，防止缓存穿透。
+ * 防击穿：同一节点内同一Key的回源合并为一次（其余请求等待同一个Future）；Redis过期时间加随机抖动，
+ * 并按概率提前过期（XFetch）在后台刷新即将过期的热点Key，避免大量请求在过期瞬间同时回源。
+ * 防旧值回写：回源前记录Key的失效戳，写入Redis后若期间发生过失效（本节点或收到广播）则删除刚写入的值；
+ * 失效时另延迟再删一次，覆盖其他节点在失效广播到达前写回的旧值。
+ */
+@Slf4j
+public class TwoLevelCache<V> {
+
+    /** Redis中表示"不存在"的占位值 */
+    static final String NULL_SENTINEL = "__auth_cache_null__";
+
+    /** L1中表示"不存在"的标记 */
+    static final Object NULL_MARKER = new Object();
+
+    /** 失效戳分段数，按Key哈希分段计数，内存固定；不同Key落在同一段只会多删一次 */
+    private static final int EVICTION_STRIPES = 1024;
+
+    @Getter
+    private final String name;
+    private final String redisKeyPrefix;
+    private final Duration redisTtl;
+    /** 负缓存过期时间，为空时不缓存不存在的结果 */
+    private final Duration negativeTtl;
+    private final Function<String, V> dbLoader;
+    /** 批量回源加载函数，可为空（为空时逐个回源） */
+    private final Function<Collection<String>, Map<String, V>> batchLoader;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final TwoLevelCacheManager cacheManager;
+    private final Counter redisHitCounter;
+    private final Counter redisMissCounter;
+    private final Counter redisNegativeHitCounter;
+    private final Counter earlyRefreshCounter;
+
+    /** 正在回源的Key，同一Key的并发回源共享同一个Future */
+    private final Map<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /** 单次回源耗时的滑动平均（纳秒），用于提前过期判断 */
+    private volatile long averageLoadNanos = 0;
+
+    /** 失效戳，每次失效递增，用于识别回源期间发生的失效 */
+    private final AtomicLongArray evictionStamps = new AtomicLongArray(EVICTION_STRIPES);
+
+    /** L1缓存，值为V或NULL_MARKER */
+    private LoadingCache<String, Object> localCache;
+
+    TwoLevelCache(String name, String redisKeyPrefix, Duration redisTtl, Duration negativeTtl,
+                  Function<String, V> dbLoader, Function<Collection<String>, Map<String, V>> batchLoader,
+                  RedisTemplate<String, Object> redisTemplate, TwoLevelCacheManager cacheManager,
+                  Counter redisHitCounter, Counter redisMissCounter, Counter redisNegativeHitCounter,
+                  Counter earlyRefreshCounter) {
+        this.name = name;
+        this.redisKeyPrefix = redisKeyPrefix;
+        this.redisTtl = redisTtl;
+        this.negativeTtl = negativeTtl;
+        this.dbLoader = dbLoader;
+        this.batchLoader = batchLoader;
+        this.redisTemplate = redisTemplate;
+        this.cacheManager = cacheManager;
+        this.redisHitCounter = redisHitCounter;
+        this.redisMissCounter = redisMissCounter;
+        this.redisNegativeHitCounter = redisNegativeHitCounter;
+        this.earlyRefreshCounter = earlyRefreshCounter;
+    }
+
+    void setLocalCache(LoadingCache<String, Object> localCache) {
+        this.localCache = localCache;
+    }
+
+    /**
+     * 读取缓存，依次查询L1、L2、数据库，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String key) {
+        Object value = localCache.get(key);
+        return value == NULL_MARKER ? null : (V) value;
+    }
+
+    /**
+     * 批量读取缓存，L1未命中的Key通过一次MGET查询Redis，仍未命中的Key批量回源
+     * 返回结果中不包含不存在的Key
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, V> getAll(Collection<String> keys) {
+        Map<String, Object> values = localCache.getAll(keys);
+        Map<String, V> result = new HashMap<>(values.size() * 2);
+        values.forEach((key, value) -> {
+            if (value != NULL_MARKER) {
+                result.put(key, (V) value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 失效缓存：删除L2（包括负缓存占位值）并广播清除所有节点的L1，稍后再执行一次
+     */
+    public void evict(String key) {
+        evictNow(key);
+        cacheManager.scheduleRedelete(() -> evictNow(key));
+    }
+
+    private void evictNow(String key) {
+        evictionStamps.incrementAndGet(stripe(key));
+        redisTemplate.delete(redisKeyPrefix + key);
+        localCache.invalidate(key);
+        cacheManager.publishInvalidation(name, key);
+    }
+
+    /**
+     * 仅清除本节点L1（收到其他节点的失效广播）
+     */
+    void evictLocal(String key) {
+        evictionStamps.incrementAndGet(stripe(key));
+        localCache.invalidate(key);
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % EVICTION_STRIPES;
+    }
+
+    /**
+     * 是否缓存不存在的结果
+     */
+    boolean isNegativeCachingEnabled() {
+        return negativeTtl != null;
+    }
+
+    /**
+     * L1未命中或提前刷新时的加载逻辑：一次管道往返读取Redis的值和剩余过期时间，未命中时回源数据库并回填Redis
+     * 命中但按概率判定即将过期时，返回当前值并在后台回源刷新
+     * 返回null表示不存在且不缓存，返回NULL_MARKER表示不存在并在L1中缓存
+     */
+    Object load(String key) {
+        String redisKey = redisKeyPrefix + key;
+        List<Object> reply = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, HV> Object execute(RedisOperations<K, HV> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.opsForValue().get(redisKey);
+                ops.getExpire(redisKey, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        });
+        Object cached = reply.get(0);
+        if (cached != null) {
+            if (NULL_SENTINEL.equals(cached)) {
+                redisNegativeHitCounter.increment();
+                return isNegativeCachingEnabled() ? NULL_MARKER : null;
+            }
+            redisHitCounter.increment();
+            if (shouldRefreshEarly((Long) reply.get(1))) {
+                refreshAsync(key);
+            }
+            return cached;
+        }
+
+        redisMissCounter.increment();
+        return loadSingleFlight(key);
+    }
+
+    /**
+     * 合并同一Key的并发回源：第一个请求执行回源，其余请求等待其结果
+     */
+    private Object loadSingleFlight(String key) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlightLoads.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            Object value = loadFromDbAndStore(key);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, future);
+        }
+    }
+
+    private Object loadFromDbAndStore(String key) {
+        String redisKey = redisKeyPrefix + key;
+        long stamp = evictionStamps.get(stripe(key));
+        long start = System.nanoTime();
+        V value = dbLoader.apply(key);
+        recordLoadTime(System.nanoTime() - start);
+
+        Object result;
+        if (value != null) {
+            redisTemplate.opsForValue().set(redisKey, value, jitter(redisTtl));
+            result = value;
+        } else if (isNegativeCachingEnabled()) {
+            redisTemplate.opsForValue().set(redisKey, NULL_SENTINEL, jitter(negativeTtl));
+            result = NULL_MARKER;
+        } else {
+            return null;
+        }
+        if (evictionStamps.get(stripe(key)) != stamp) {
+            // 回源期间发生了失效，刚写入的可能是失效前读到的旧值
+            redisTemplate.delete(redisKey);
+        }
+        return result;
+    }
+
+    /**
+     * 后台回源并回填Redis，本节点已有同一Key在回源时跳过
+     * L1中的当前值保持不变，在下一次提前刷新时读取到新值
+     */
+    private void refreshAsync(String key) {
+        if (inFlightLoads.containsKey(key)) {
+            return;
+        }
+        try {
+            CompletableFuture.runAsync(() -> loadSingleFlight(key), cacheManager.getRefreshExecutor())
+                    .exceptionally(e -> {
+                        log.warn("缓存提前刷新失败: cache={}, key={}, error={}", name, key, e.getMessage());
+                        return null;
+                    });
+            earlyRefreshCounter.increment();
+        } catch (RejectedExecutionException e) {
+            // 刷新线程池已满，Redis中的值仍然有效，由后续读取再次尝试
+            log.debug("缓存提前刷新队列已满，跳过: cache={}, key={}", name, key);
+        }
+    }
+
+    /**
+     * XFetch概率提前过期：剩余时间越短、回源越慢，提前刷新的概率越高
+     * 本节点只在L1刷新时才会读取Redis，因此把L1刷新间隔计入提前量，保证过期前至少有一次刷新机会
+     *
+     * @param ttlMillis Redis剩余过期时间（毫秒），负数表示无过期时间或Key不存在
+     */
+    private boolean shouldRefreshEarly(Long ttlMillis) {
+        double beta = cacheManager.getEarlyRefreshBeta();
+        if (beta <= 0 || ttlMillis == null || ttlMillis < 0) {
+            return false;
+        }
+        double deltaMillis = averageLoadNanos / 1_000_000.0 + cacheManager.getLocalRefreshMillis();
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return -deltaMillis * beta * Math.log(random) >= ttlMillis;
+    }
+
+    private void recordLoadTime(long nanos) {
+        long average = averageLoadNanos;
+        // 并发更新时丢失个别样本不影响判断
+        averageLoadNanos = average == 0 ? nanos : average + (nanos - average) / 8;
+    }
+
+    /**
+     * 过期时间加随机抖动，避免同一批写入的Key同时过期
+     */
+    private Duration jitter(Duration ttl) {
+        double ratio = cacheManager.getTtlJitter();
+        if (ratio <= 0) {
+            return ttl;
+        }
+        double factor = 1.0 + ratio * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return Duration.ofMillis(Math.max(1, (long) (ttl.toMillis() * factor)));
+    }
+
+    /**
+     * L1批量未命中时的加载逻辑：一次MGET查询Redis，未命中部分批量回源并通过管道回填Redis
+     * 批量路径不做提前过期判断，热点Key由单Key读取和L1刷新负责提前刷新
+     */
+    Map<String, Object> loadAll(Set<? extends String> keys) {
+        List<String> keyList = new ArrayList<>(keys);
+        List<String> redisKeys = new ArrayList<>(keyList.size());
+        for (String key : keyList) {
+            redisKeys.add(redisKeyPrefix + key);
+        }
+
+        List<Object> cachedValues = redisTemplate.opsForValue().multiGet(redisKeys);
+        Map<String, Object> result = new HashMap<>(keyList.size() * 2);
+        List<String> misses = new ArrayList<>();
+        int negativeHits = 0;
+        for (int i = 0; i < keyList.size(); i++) {
+            Object cached = cachedValues != null ? cachedValues.get(i) : null;
+            if (cached == null) {
+                misses.add(keyList.get(i));
+            } else if (NULL_SENTINEL.equals(cached)) {
+                negativeHits++;
+                if (isNegativeCachingEnabled()) {
+                    result.put(keyList.get(i), NULL_MARKER);
+                }
+            } else {
+                result.put(keyList.get(i), cached);
+            }
+        }
+        redisHitCounter.increment(result.size() - negativeHits);
+        redisNegativeHitCounter.increment(negativeHits);
+        redisMissCounter.increment(misses.size());
+
+        if (!misses.isEmpty()) {
+            long[] stamps = new long[misses.size()];
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i] = evictionStamps.get(stripe(misses.get(i)));
+            }
+            Map<String, V> loaded = loadFromDb(misses);
+            List<String> absent = new ArrayList<>();
+            if (isNegativeCachingEnabled()) {
+                for (String key : misses) {
+                    if (!loaded.containsKey(key)) {
+                        absent.add(key);
+                        result.put(key, NULL_MARKER);
+                    }
+                }
+            }
+            writeRedis(loaded, absent);
+            deleteIfEvicted(misses, stamps);
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    private Map<String, V> loadFromDb(List<String> keys) {
+        if (batchLoader != null) {
+            return batchLoader.apply(keys);
+        }
+
+        Map<String, V> loaded = new HashMap<>(keys.size() * 2);
+        for (String key : keys) {
+            V value = dbLoader.apply(key);
+            if (value != null) {
+                loaded.put(key, value);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 删除回源期间发生过失效的Key刚写入的值
+     */
+    private void deleteIfEvicted(List<String> keys, long[] stamps) {
+        List<String> evicted = new ArrayList<>();
+        for (int i = 0; i < stamps.length; i++) {
+            if (evictionStamps.get(stripe(keys.get(i))) != stamps[i]) {
+                evicted.add(redisKeyPrefix + keys.get(i));
+            }
+        }
+        if (!evicted.isEmpty()) {
+            redisTemplate.delete(evicted);
+        }
+    }
+
+    private void writeRedis(Map<String, V> values, List<String> absentKeys) {
+        if (values.isEmpty() && absentKeys.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, HV> Object execute(RedisOperations<K, HV> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                values.forEach((key, value) -> ops.opsForValue().set(redisKeyPrefix + key, value, jitter(redisTtl)));
+                for (String key : absentKeys) {
+                    ops.opsForValue().set(redisKeyPrefix + key, NULL_SENTINEL, jitter(negativeTtl));
+                }
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,262 @@
+package com.mengnankk.auth.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.mengnankk.auth.util.RedisKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 二级缓存管理器
+ * 负责创建二级缓存、注册监控指标，并处理跨节点的L1失效广播
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TwoLevelCacheManager {
+
+    private static final String MESSAGE_SEPARATOR = "|";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.cache.local.maximum-size:10000}")
+    private Long localMaximumSize;
+
+    @Value("${auth.cache.local.expire-after-write-seconds:300}")
+    private Long localExpireSeconds;
+
+    @Value("${auth.cache.local.refresh-after-write-seconds:30}")
+    private Long localRefreshSeconds;
+
+    /** Redis过期时间随机抖动比例 */
+    @Getter(AccessLevel.PACKAGE)
+    @Value("${auth.cache.ttl-jitter:0.1}")
+    private double ttlJitter;
+
+    /** 提前过期系数，越大越早刷新，0表示关闭 */
+    @Getter(AccessLevel.PACKAGE)
+    @Value("${auth.cache.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
+
+    @Value("${auth.cache.refresh.threads:2}")
+    private Integer refreshThreads;
+
+    @Value("${auth.cache.refresh.queue-capacity:256}")
+    private Integer refreshQueueCapacity;
+
+    /** 失效后再次删除的延迟，需大于失效广播的传播延迟 */
+    @Value("${auth.cache.redelete-delay-ms:1000}")
+    private Long redeleteDelayMs;
+
+    private final Map<String, TwoLevelCache<?>> caches = new ConcurrentHashMap<>();
+
+    /** 提前刷新专用线程池，有界队列，已满时放弃本次提前刷新，避免占用公共ForkJoinPool */
+    @Getter(AccessLevel.PACKAGE)
+    private ThreadPoolExecutor refreshExecutor;
+
+    /** 延迟再次失效的调度线程，任务只有一次Redis删除和广播 */
+    private ScheduledThreadPoolExecutor redeleteExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(refreshQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.redeleteExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "cache-redelete");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        redisMessageListenerContainer.addMessageListener(this::onInvalidationMessage,
+                new ChannelTopic(RedisKeys.CACHE_INVALIDATION_CHANNEL));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+        redeleteExecutor.shutdownNow();
+    }
+
+    /**
+     * 创建二级缓存
+     *
+     * @param name           缓存名称，用于指标和失效广播
+     * @param redisKeyPrefix L2 Redis Key前缀
+     * @param redisTtl       L2过期时间
+     * @param dbLoader       回源加载函数，返回null表示不存在（不缓存）
+     */
+    public <V> TwoLevelCache<V> create(String name, String redisKeyPrefix, Duration redisTtl,
+                                       Function<String, V> dbLoader) {
+        return create(name, redisKeyPrefix, redisTtl, dbLoader, null);
+    }
+
+    /**
+     * 创建支持批量回源的二级缓存
+     *
+     * @param batchLoader 批量回源加载函数，返回结果中不包含不存在的Key
+     */
+    public <V> TwoLevelCache<V> create(String name, String redisKeyPrefix, Duration redisTtl,
+                                       Function<String, V> dbLoader,
+                                       Function<Collection<String>, Map<String, V>> batchLoader) {
+        return create(name, redisKeyPrefix, redisTtl, null, dbLoader, batchLoader);
+    }
+
+    /**
+     * 创建缓存不存在结果的二级缓存
+     *
+     * @param negativeTtl 不存在结果在L2中的过期时间，L1中不超过本地过期时间；为空时不缓存不存在的结果
+     */
+    public <V> TwoLevelCache<V> create(String name, String redisKeyPrefix, Duration redisTtl, Duration negativeTtl,
+                                       Function<String, V> dbLoader,
+                                       Function<Collection<String>, Map<String, V>> batchLoader) {
+        Counter redisHitCounter = Counter.builder("auth.cache.l2.requests")
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        Counter redisMissCounter = Counter.builder("auth.cache.l2.requests")
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Counter redisNegativeHitCounter = Counter.builder("auth.cache.l2.requests")
+                .tag("cache", name)
+                .tag("result", "negative")
+                .register(meterRegistry);
+        Counter earlyRefreshCounter = Counter.builder("auth.cache.l2.early.refresh")
+                .tag("cache", name)
+                .register(meterRegistry);
+
+        TwoLevelCache<V> cache = new TwoLevelCache<>(name, redisKeyPrefix, redisTtl, negativeTtl, dbLoader,
+                batchLoader, redisTemplate, this, redisHitCounter, redisMissCounter, redisNegativeHitCounter,
+                earlyRefreshCounter);
+        long expireNanos = TimeUnit.SECONDS.toNanos(localExpireSeconds);
+        long negativeExpireNanos = negativeTtl != null ? Math.min(negativeTtl.toNanos(), expireNanos) : expireNanos;
+        LoadingCache<String, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfter(new Expiry<String, Object>() {
+                    @Override
+                    public long expireAfterCreate(String key, Object value, long currentTime) {
+                        return value == TwoLevelCache.NULL_MARKER ? negativeExpireNanos : expireNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .refreshAfterWrite(localRefreshSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(new CacheLoader<String, Object>() {
+                    @Override
+                    public Object load(String key) {
+                        return cache.load(key);
+                    }
+
+                    @Override
+                    public Map<String, Object> loadAll(Set<? extends String> keys) {
+                        return cache.loadAll(keys);
+                    }
+                });
+        cache.setLocalCache(localCache);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, name);
+        caches.put(name, cache);
+        return cache;
+    }
+
+    /**
+     * L1刷新间隔（毫秒）
+     */
+    long getLocalRefreshMillis() {
+        return TimeUnit.SECONDS.toMillis(localRefreshSeconds);
+    }
+
+    /**
+     * 延迟再次执行失效
+     */
+    void scheduleRedelete(Runnable evict) {
+        try {
+            redeleteExecutor.schedule(() -> {
+                try {
+                    evict.run();
+                } catch (Exception e) {
+                    log.error("缓存延迟失效失败: {}", e.getMessage());
+                }
+            }, redeleteDelayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 停机中，首次失效已生效
+            log.debug("缓存延迟失效已跳过: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 广播L1失效消息
+     */
+    void publishInvalidation(String cacheName, String key) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisKeys.CACHE_INVALIDATION_CHANNEL,
+                    cacheName + MESSAGE_SEPARATOR + key);
+        } catch (Exception e) {
+            // 广播失败时其他节点的L1会在过期后自动纠正
+            log.error("缓存失效广播失败: cache={}, key={}, error={}", cacheName, key, e.getMessage());
+        }
+    }
+
+    private void onInvalidationMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separatorIndex = body.indexOf(MESSAGE_SEPARATOR);
+        if (separatorIndex <= 0) {
+            log.warn("无法识别的缓存失效消息: {}", body);
+            return;
+        }
+
+        TwoLevelCache<?> cache = caches.get(body.substring(0, separatorIndex));
+        if (cache != null) {
+            cache.evictLocal(body.substring(separatorIndex + 1));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.mengnankk.auth.config;
+
+import com.mengnankk.auth.security.BoundedPasswordEncoder;
+import com.mengnankk.auth.security.PasswordHashingExecutor;
+import com.mengnankk.auth.security.TunableBCryptPasswordEncoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * 密码编码器配置
+ * 独立于SecurityConfig，避免UserService注入编码器时与安全配置形成循环依赖。
+ * BCrypt代价由配置指定，或在启动时按目标校验耗时自动校准；代价不一致的已有哈希在登录成功后透明升级。
+ */
+@Slf4j
+@Configuration
+public class PasswordEncoderConfig {
+
+    @Value("${auth.password.bcrypt.strength:10}")
+    private Integer strength;
+
+    @Value("${auth.password.bcrypt.calibrate:false}")
+    private Boolean calibrate;
+
+    @Value("${auth.password.bcrypt.target-verify-millis:250}")
+    private Long targetVerifyMillis;
+
+    @Value("${auth.password.bcrypt.min-strength:10}")
+    private Integer minStrength;
+
+    @Value("${auth.password.bcrypt.max-strength:14}")
+    private Integer maxStrength;
+
+    @Bean
+    public PasswordEncoder passwordEncoder(PasswordHashingExecutor passwordHashingExecutor) {
+        int effectiveStrength = calibrate
+                ? TunableBCryptPasswordEncoder.calibrate(targetVerifyMillis, minStrength, maxStrength)
+                : strength;
+        if (effectiveStrength < TunableBCryptPasswordEncoder.MIN_STRENGTH
+                || effectiveStrength > TunableBCryptPasswordEncoder.MAX_STRENGTH) {
+            throw new IllegalStateException("BCrypt代价超出范围: " + effectiveStrength);
+        }
+        log.info("密码编码器初始化完成: BCrypt strength={}", effectiveStrength);
+        return new BoundedPasswordEncoder(new TunableBCryptPasswordEncoder(effectiveStrength), passwordHashingExecutor);
+    }
+}
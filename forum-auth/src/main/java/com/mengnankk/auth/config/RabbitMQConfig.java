@@ -1,14 +1,19 @@
 package com.mengnankk.auth.config;
 
+import com.mengnankk.auth.event.AuthEventMessageConverter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Set;
+
 /**
  * RabbitMQ配置类
  */
@@ -36,32 +41,68 @@ public class RabbitMQConfig {
     public static final String PHONE_VERIFY_ROUTING_KEY = "user.phone.verify";
     public static final String OAUTH2_LOGIN_ROUTING_KEY = "user.oauth2.login";
 
+    // 死信交换机、队列与路由键
+    // 业务队列已在线上声明过，修改队列参数会导致启动时406 PRECONDITION_FAILED，
+    // 因此死信交换机通过broker策略绑定到auth队列（见start-with-nacos.md），不写入队列声明参数
+    public static final String AUTH_DEAD_LETTER_EXCHANGE = "auth.dlx";
+    public static final String AUTH_DEAD_LETTER_QUEUE = "auth.dead-letter.queue";
+    public static final String AUTH_DEAD_LETTER_ROUTING_KEY = "auth.dead-letter";
+
+    /** 批量监听容器工厂名称 */
+    public static final String BATCH_LISTENER_CONTAINER_FACTORY = "rabbitListenerContainerFactory";
+
+    /** 消费方已支持二进制编码的事件类型，其余事件类型仍以JSON发送 */
+    @Value("${auth.events.binary-event-types:}")
+    private Set<String> binaryEventTypes;
+
+    @Value("${auth.mq.consumer.batch-size:100}")
+    private Integer consumerBatchSize;
+
+    @Value("${auth.mq.consumer.linger-ms:200}")
+    private Long consumerLingerMs;
+
+    @Value("${auth.mq.consumer.concurrency:1}")
+    private Integer consumerConcurrency;
+
     /**
      * 消息转换器
+     * 认证事件按类型选择JSON或二进制编码，接收时按content-type解码
      */
     @Bean
-    public MessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter(MeterRegistry meterRegistry) {
+        return new AuthEventMessageConverter(new Jackson2JsonMessageConverter("com.mengnankk.auth.event"),
+                binaryEventTypes, meterRegistry);
     }
 
     /**
      * RabbitTemplate配置
      */
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(messageConverter());
+        rabbitTemplate.setMessageConverter(messageConverter);
         return rabbitTemplate;
     }
 
     /**
      * 监听器容器工厂
+     * 批量消费：凑满batch-size条或等待linger-ms后交给监听器，预取数为两个批次以保证下一批无需等待网络；
+     * 手动确认，由AbstractBatchConsumer每批一次性确认
      */
     @Bean
-    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory) {
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                               MessageConverter messageConverter) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
-        factory.setMessageConverter(messageConverter());
+        factory.setMessageConverter(messageConverter);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(consumerBatchSize);
+        factory.setReceiveTimeout(consumerLingerMs);
+        factory.setPrefetchCount(consumerBatchSize * 2);
+        factory.setConcurrentConsumers(consumerConcurrency);
+        factory.setDefaultRequeueRejected(false);
         return factory;
     }
 
@@ -73,6 +114,26 @@ public class RabbitMQConfig {
         return new TopicExchange(AUTH_EXCHANGE, true, false);
     }
 
+    /**
+     * 死信交换机，接收消费失败（毒消息）的事件
+     */
+    @Bean
+    public DirectExchange authDeadLetterExchange() {
+        return new DirectExchange(AUTH_DEAD_LETTER_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public Queue authDeadLetterQueue() {
+        return QueueBuilder.durable(AUTH_DEAD_LETTER_QUEUE).build();
+    }
+
+    @Bean
+    public Binding authDeadLetterBinding() {
+        return BindingBuilder.bind(authDeadLetterQueue())
+                .to(authDeadLetterExchange())
+                .with(AUTH_DEAD_LETTER_ROUTING_KEY);
+    }
+
     // ========== 队列定义 ==========
 
     @Bean
@@ -0,0 +1,24 @@
+package com.mengnankk.auth.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按用户限流的配额档位配置
+ * 可在Nacos中动态修改，刷新后由RateLimitTierResolver重建查找表
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "auth.ratelimit.tiers")
+public class RateLimitTierProperties {
+
+    /** 未匹配任何档位角色时的配额倍数 */
+    private double defaultMultiplier = 1.0;
+
+    /** 角色名（不含ROLE_前缀） -> 配额倍数，用户拥有多个角色时取最大值 */
+    private Map<String, Double> roleMultipliers = new LinkedHashMap<>();
+}
@@ -11,6 +11,9 @@ public class AuthConstants {
     /** Token请求头名称 */
     public static final String TOKEN_HEADER = "Authorization";
     
+    /** 已验签Token的请求属性名 */
+    public static final String VERIFIED_TOKEN_ATTRIBUTE = "auth.verifiedToken";
+    
     /** 默认角色名称 */
     public static final String DEFAULT_ROLE = "USER";
     
@@ -1,23 +1,35 @@
 package com.mengnankk.auth.controller;
 
 import com.mengnankk.auth.annotation.RateLimit;
+import com.mengnankk.auth.constants.AuthConstants;
 import com.mengnankk.auth.dto.*;
 import com.mengnankk.auth.entity.User;
 import com.mengnankk.auth.security.CustomUserDetails;
 import com.mengnankk.auth.security.JwtTokenProvider;
 import com.mengnankk.auth.service.UserService;
 import com.mengnankk.auth.service.AuthEventProducer;
+import com.mengnankk.auth.service.LoginAttemptService;
+import com.mengnankk.auth.service.UserAvailabilityService;
+import com.mengnankk.auth.util.ClientIpResolver;
+import com.mengnankk.auth.util.VerifiedToken;
+import com.mengnankk.auth.exception.AuthException;
+import com.mengnankk.auth.exception.ServiceBusyException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 /**
@@ -34,18 +46,38 @@ public class AuthController {
     private final UserService userService;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthEventProducer authEventProducer;
+    private final LoginAttemptService loginAttemptService;
+    private final UserAvailabilityService userAvailabilityService;
+    private final ClientIpResolver clientIpResolver;
 
     @Operation(summary = "用户登录", description = "通过用户名密码登录系统")
     @PostMapping("/login")
-    @RateLimit(key = "login", time = 300, count = 5, message = "登录过于频繁，请5分钟后再试")
-    public ResponseEntity<Result<LoginResponse>> login(@Valid @RequestBody LoginRequest request) {
+    @RateLimit(key = "login", time = 300, count = 5, algorithm = RateLimit.Algorithm.SLIDING_WINDOW_LOG,
+            message = "登录过于频繁，请5分钟后再试")
+    public ResponseEntity<Result<LoginResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                       HttpServletRequest httpRequest) {
         try {
+            String clientIp = clientIpResolver.getClientIp(httpRequest);
+            
+            // 已锁定的账户或IP直接拒绝，不进行密码校验
+            loginAttemptService.checkNotLocked(request.getUsername(), clientIp);
+            
             // 创建认证Token
             UsernamePasswordAuthenticationToken authToken = 
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword());
             
             // 进行认证
-            Authentication authentication = authenticationManager.authenticate(authToken);
+            Authentication authentication;
+            try {
+                authentication = authenticationManager.authenticate(authToken);
+            } catch (BadCredentialsException e) {
+                long remaining = loginAttemptService.recordFailure(request.getUsername(), clientIp);
+                if (remaining <= 0) {
+                    throw new AuthException(String.format("登录失败次数过多，账户已锁定%d分钟", AuthConstants.ACCOUNT_LOCK_TIME));
+                }
+                throw new AuthException(String.format("用户名或密码错误，还可尝试%d次", remaining));
+            }
+            loginAttemptService.recordSuccess(request.getUsername());
             
             // 获取用户详情
             CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
@@ -67,6 +99,9 @@ public class AuthController {
             
             return ResponseEntity.ok(Result.success(response));
             
+        } catch (ServiceBusyException e) {
+            // 交由全局异常处理返回503
+            throw e;
         } catch (Exception e) {
             log.error("用户登录失败: {}", e.getMessage());
             return ResponseEntity.ok(Result.error("登录失败: " + e.getMessage()));
@@ -85,14 +120,14 @@ public class AuthController {
             user.setPhone(request.getPhone());
             user.setNickname(request.getNickname());
             
-            // 注册用户
+            // 注册用户（注册事件在同一事务中写入发件箱）
             User registeredUser = userService.register(user, request.getPassword());
             
-            // 发送注册事件
-            authEventProducer.sendRegisterEvent(registeredUser.getId(), registeredUser.getUsername(), registeredUser.getEmail());
-            
             return ResponseEntity.ok(Result.success(buildUserInfo(registeredUser)));
             
+        } catch (ServiceBusyException e) {
+            // 交由全局异常处理返回503
+            throw e;
         } catch (Exception e) {
             log.error("用户注册失败: {}", e.getMessage());
             return ResponseEntity.ok(Result.error("注册失败: " + e.getMessage()));
@@ -128,7 +163,7 @@ public class AuthController {
                 CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
                 
                 // 注销Token
-                String token = getCurrentToken();
+                VerifiedToken token = getCurrentToken();
                 if (token != null) {
                     jwtTokenProvider.revokeToken(token);
                 }
@@ -148,6 +183,31 @@ public class AuthController {
         }
     }
 
+    @Operation(summary = "退出所有设备", description = "使当前用户已签发的所有Token失效")
+    @PostMapping("/logout-all")
+    public ResponseEntity<Result<String>> logoutAll() {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails)) {
+                return ResponseEntity.ok(Result.error("用户未认证"));
+            }
+            
+            CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+            
+            // 一次写入吊销该用户所有Token
+            jwtTokenProvider.revokeAllTokens(userDetails.getUserId());
+            
+            // 发送登出事件
+            authEventProducer.sendLogoutEvent(userDetails.getUserId(), userDetails.getUsername());
+            
+            return ResponseEntity.ok(Result.success("已退出所有设备"));
+            
+        } catch (Exception e) {
+            log.error("退出所有设备失败: {}", e.getMessage());
+            return ResponseEntity.ok(Result.error("退出所有设备失败: " + e.getMessage()));
+        }
+    }
+
     @Operation(summary = "修改密码", description = "修改当前用户密码")
     @PostMapping("/change-password")
     public ResponseEntity<Result<String>> changePassword(@Valid @RequestBody ChangePasswordRequest request) {
@@ -167,6 +227,9 @@ public class AuthController {
             
             return ResponseEntity.ok(Result.success("密码修改成功"));
             
+        } catch (ServiceBusyException e) {
+            // 交由全局异常处理返回503
+            throw e;
         } catch (Exception e) {
             log.error("密码修改失败: {}", e.getMessage());
             return ResponseEntity.ok(Result.error("密码修改失败: " + e.getMessage()));
@@ -183,6 +246,14 @@ public class AuthController {
             }
             
             CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+            if (userDetails.isClaimsOnly()) {
+                // 无状态认证模式下Principal不含用户资料，需要回源加载
+                User user = userService.getUserById(userDetails.getUserId());
+                if (user == null) {
+                    return ResponseEntity.ok(Result.error("用户不存在"));
+                }
+                return ResponseEntity.ok(Result.success(buildUserInfo(user)));
+            }
             return ResponseEntity.ok(Result.success(buildUserInfo(userDetails)));
             
         } catch (Exception e) {
@@ -191,6 +262,31 @@ public class AuthController {
         }
     }
 
+    @Operation(summary = "检查用户名/邮箱是否可用", description = "注册表单实时校验，结果仅供提示，以注册结果为准")
+    @GetMapping("/verify/availability")
+    @RateLimit(key = "availability", time = 60, count = 60, message = "请求过于频繁，请稍后再试")
+    public ResponseEntity<Result<AvailabilityResponse>> checkAvailability(@RequestParam(required = false) String username,
+                                                                         @RequestParam(required = false) String email) {
+        try {
+            if (!StringUtils.hasText(username) && !StringUtils.hasText(email)) {
+                return ResponseEntity.ok(Result.error("用户名和邮箱不能同时为空"));
+            }
+            
+            AvailabilityResponse response = new AvailabilityResponse();
+            if (StringUtils.hasText(username)) {
+                response.setUsernameAvailable(userAvailabilityService.isUsernameAvailable(username));
+            }
+            if (StringUtils.hasText(email)) {
+                response.setEmailAvailable(userAvailabilityService.isEmailAvailable(email));
+            }
+            return ResponseEntity.ok(Result.success(response));
+            
+        } catch (Exception e) {
+            log.error("可用性检查失败: {}", e.getMessage());
+            return ResponseEntity.ok(Result.error("可用性检查失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 构建用户信息DTO
      */
@@ -229,10 +325,14 @@ public class AuthController {
 
     /**
      * 获取当前请求的Token
+     * 由JwtAuthenticationFilter验签后挂在请求属性上
      */
-    private String getCurrentToken() {
-        // 这里可以从请求头中获取Token
-        // 具体实现可以根据需要调整
-        return null;
+    private VerifiedToken getCurrentToken() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (VerifiedToken) attributes.getAttribute(
+                AuthConstants.VERIFIED_TOKEN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
     }
 }
@@ -1,18 +1,29 @@
 package com.mengnankk.auth.controller;
 
+import com.mengnankk.auth.dto.AuthorityCheckRequest;
+import com.mengnankk.auth.dto.AuthorityCheckResponse;
 import com.mengnankk.auth.dto.Result;
 import com.mengnankk.auth.dto.UserInfo;
 import com.mengnankk.auth.entity.User;
+import com.mengnankk.auth.exception.AuthException;
 import com.mengnankk.auth.security.JwtTokenProvider;
 import com.mengnankk.auth.service.UserService;
+import com.mengnankk.auth.util.VerifiedToken;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 内部API控制器
@@ -40,12 +51,13 @@ public class InternalAuthController {
             }
 
             // 验证Token
-            if (!jwtTokenProvider.validateToken(token)) {
+            VerifiedToken verifiedToken = jwtTokenProvider.resolveToken(token);
+            if (verifiedToken == null) {
                 return ResponseEntity.ok(Result.error("Token无效或已过期"));
             }
 
             // 获取用户ID
-            Long userId = jwtTokenProvider.getUserIdFromToken(token);
+            Long userId = verifiedToken.getUserId();
             if (userId == null) {
                 return ResponseEntity.ok(Result.error("无法从Token中获取用户信息"));
             }
@@ -116,6 +128,38 @@ public class InternalAuthController {
         }
     }
 
+    @Operation(summary = "批量检查用户权限和角色",
+            description = "对用户列表与权限列表、角色列表分别求笛卡尔积检查，每个用户的权限集合只解析一次，返回0/1结果矩阵")
+    @PostMapping("/authority/check")
+    public ResponseEntity<Result<AuthorityCheckResponse>> checkAuthorities(
+            @Valid @RequestBody AuthorityCheckRequest request) {
+        try {
+            List<Long> userIds = userService.distinctUserIds(request.getUserIds());
+            List<String> permissions = distinct(request.getPermissions());
+            List<String> roles = distinct(request.getRoles());
+
+            Map<Long, List<String>> permissionsByUser = permissions.isEmpty()
+                    ? Collections.emptyMap() : userService.getUserPermissionsBatch(userIds);
+            Map<Long, List<String>> rolesByUser = roles.isEmpty()
+                    ? Collections.emptyMap() : userService.getUserRolesBatch(userIds);
+
+            AuthorityCheckResponse response = AuthorityCheckResponse.builder()
+                    .userIds(userIds)
+                    .permissions(permissions)
+                    .roles(roles)
+                    .permissionMatrix(buildMatrix(userIds, permissions, permissionsByUser))
+                    .roleMatrix(buildMatrix(userIds, roles, rolesByUser))
+                    .build();
+            return ResponseEntity.ok(Result.success(response));
+
+        } catch (AuthException e) {
+            return ResponseEntity.ok(Result.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("批量权限检查失败: {}", e.getMessage());
+            return ResponseEntity.ok(Result.error("批量权限检查失败: " + e.getMessage()));
+        }
+    }
+
     @Operation(summary = "获取用户权限列表", description = "获取用户的所有权限")
     @GetMapping("/user/{userId}/permissions")
     public ResponseEntity<Result<List<String>>> getUserPermissions(@PathVariable Long userId) {
@@ -142,20 +186,25 @@ public class InternalAuthController {
         }
     }
 
-    @Operation(summary = "批量获取用户信息", description = "根据用户ID列表批量获取用户信息")
+    @Operation(summary = "批量获取用户信息", description = "根据用户ID列表批量获取用户信息，重复ID会被合并，不存在的用户被忽略")
     @PostMapping("/users/batch")
     public ResponseEntity<Result<List<UserInfo>>> getUsersBatch(@RequestBody List<Long> userIds) {
         try {
-            List<UserInfo> userInfoList = userIds.stream()
-                    .map(userId -> {
-                        User user = userService.getUserById(userId);
-                        return user != null ? buildUserInfo(user) : null;
-                    })
-                    .filter(userInfo -> userInfo != null)
+            List<User> users = userService.getUsersByIds(userIds);
+            List<Long> existingIds = users.stream().map(User::getId).toList();
+            Map<Long, List<String>> rolesByUser = userService.getUserRolesBatch(existingIds);
+            Map<Long, List<String>> permissionsByUser = userService.getUserPermissionsBatch(existingIds);
+
+            List<UserInfo> userInfoList = users.stream()
+                    .map(user -> buildUserInfo(user,
+                            rolesByUser.getOrDefault(user.getId(), Collections.emptyList()),
+                            permissionsByUser.getOrDefault(user.getId(), Collections.emptyList())))
                     .toList();
 
             return ResponseEntity.ok(Result.success(userInfoList));
 
+        } catch (AuthException e) {
+            return ResponseEntity.ok(Result.error(e.getMessage()));
         } catch (Exception e) {
             log.error("批量获取用户信息失败: {}", e.getMessage());
             return ResponseEntity.ok(Result.error("批量获取用户信息失败: " + e.getMessage()));
@@ -172,10 +221,47 @@ public class InternalAuthController {
         return null;
     }
 
+    /**
+     * 去重并保持顺序
+     */
+    private List<String> distinct(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return List.copyOf(new LinkedHashSet<>(values));
+    }
+
+    /**
+     * 构建检查结果矩阵，每个用户一行
+     */
+    private List<String> buildMatrix(List<Long> userIds, List<String> columns, Map<Long, List<String>> ownedByUser) {
+        if (columns.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return userIds.stream()
+                .map(userId -> {
+                    Set<String> owned = new HashSet<>(ownedByUser.getOrDefault(userId, Collections.emptyList()));
+                    StringBuilder row = new StringBuilder(columns.size());
+                    for (String column : columns) {
+                        row.append(owned.contains(column) ? '1' : '0');
+                    }
+                    return row.toString();
+                })
+                .toList();
+    }
+
     /**
      * 构建用户信息DTO
      */
     private UserInfo buildUserInfo(User user) {
+        return buildUserInfo(user, userService.getUserRoles(user.getId()), userService.getUserPermissions(user.getId()));
+    }
+
+    /**
+     * 使用已查询的角色和权限构建用户信息DTO
+     */
+    private UserInfo buildUserInfo(User user, List<String> roles, List<String> permissions) {
         UserInfo userInfo = new UserInfo();
         userInfo.setId(user.getId());
         userInfo.setUsername(user.getUsername());
@@ -188,8 +274,8 @@ public class InternalAuthController {
         userInfo.setPhoneVerified(user.isPhoneVerified() ? 1 : 0);
         userInfo.setLastLoginTime(user.getLastLoginTime());
         userInfo.setCreatedTime(user.getCreatedTime());
-        userInfo.setRoles(userService.getUserRoles(user.getId()));
-        userInfo.setPermissions(userService.getUserPermissions(user.getId()));
+        userInfo.setRoles(roles);
+        userInfo.setPermissions(permissions);
         return userInfo;
     }
 }
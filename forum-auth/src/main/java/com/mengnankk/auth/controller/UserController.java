@@ -4,6 +4,7 @@ import com.mengnankk.auth.annotation.RateLimit;
 import com.mengnankk.auth.dto.*;
 import com.mengnankk.auth.entity.User;
 import com.mengnankk.auth.service.UserService;
+import com.mengnankk.auth.exception.ServiceBusyException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -96,6 +97,9 @@ public class UserController {
             
             return ResponseEntity.ok(Result.success(buildUserInfo(createdUser)));
             
+        } catch (ServiceBusyException e) {
+            // 交由全局异常处理返回503
+            throw e;
         } catch (Exception e) {
             log.error("创建用户失败: {}", e.getMessage());
             return ResponseEntity.ok(Result.error("创建用户失败: " + e.getMessage()));
@@ -165,6 +169,9 @@ public class UserController {
             String newPassword = userService.resetPassword(userId);
             return ResponseEntity.ok(Result.success("密码重置成功，新密码为: " + newPassword));
             
+        } catch (ServiceBusyException e) {
+            // 交由全局异常处理返回503
+            throw e;
         } catch (Exception e) {
             log.error("重置密码失败: {}", e.getMessage());
             return ResponseEntity.ok(Result.error("重置密码失败: " + e.getMessage()));
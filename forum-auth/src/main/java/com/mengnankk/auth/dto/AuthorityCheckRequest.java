@@ -0,0 +1,33 @@
+package com.mengnankk.auth.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量权限/角色检查请求DTO
+ * 对userIds与permissions、roles分别做笛卡尔积检查
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel(value = "批量权限检查请求", description = "批量检查多个用户的权限和角色")
+public class AuthorityCheckRequest {
+
+    @ApiModelProperty(value = "用户ID列表", required = true, example = "[1, 2, 3]")
+    @NotEmpty(message = "用户ID列表不能为空")
+    private List<Long> userIds;
+
+    @ApiModelProperty(value = "待检查的权限列表", example = "[\"post:delete\", \"comment:delete\"]")
+    private List<String> permissions;
+
+    @ApiModelProperty(value = "待检查的角色列表", example = "[\"ADMIN\", \"MODERATOR\"]")
+    private List<String> roles;
+}
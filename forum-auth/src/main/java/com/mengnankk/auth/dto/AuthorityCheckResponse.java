@@ -0,0 +1,58 @@
+package com.mengnankk.auth.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量权限/角色检查结果DTO
+ * 结果矩阵每行对应userIds中的一个用户，每行为由0/1组成的字符串，
+ * 第i位表示该用户是否拥有请求中第i个权限（或角色）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel(value = "批量权限检查结果", description = "用户×权限、用户×角色的检查结果矩阵")
+public class AuthorityCheckResponse {
+
+    @ApiModelProperty(value = "用户ID列表（去重后，与结果矩阵的行对应）")
+    private List<Long> userIds;
+
+    @ApiModelProperty(value = "权限列表（与权限矩阵的列对应）")
+    private List<String> permissions;
+
+    @ApiModelProperty(value = "角色列表（与角色矩阵的列对应）")
+    private List<String> roles;
+
+    @ApiModelProperty(value = "权限检查结果矩阵", example = "[\"10\", \"01\"]")
+    private List<String> permissionMatrix;
+
+    @ApiModelProperty(value = "角色检查结果矩阵", example = "[\"1\", \"0\"]")
+    private List<String> roleMatrix;
+
+    /**
+     * 查询指定用户是否拥有指定权限
+     */
+    public boolean hasPermission(Long userId, String permission) {
+        return lookup(permissionMatrix, permissions, userId, permission);
+    }
+
+    /**
+     * 查询指定用户是否拥有指定角色
+     */
+    public boolean hasRole(Long userId, String role) {
+        return lookup(roleMatrix, roles, userId, role);
+    }
+
+    private boolean lookup(List<String> matrix, List<String> columns, Long userId, String column) {
+        int row = userIds != null ? userIds.indexOf(userId) : -1;
+        int col = columns != null ? columns.indexOf(column) : -1;
+        return row >= 0 && col >= 0 && matrix.get(row).charAt(col) == '1';
+    }
+}
@@ -0,0 +1,25 @@
+package com.mengnankk.auth.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户名/邮箱可用性响应DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel(value = "可用性检查响应", description = "用户名/邮箱是否可用，未查询的项为null")
+public class AvailabilityResponse {
+
+    @ApiModelProperty(value = "用户名是否可用")
+    private Boolean usernameAvailable;
+
+    @ApiModelProperty(value = "邮箱是否可用")
+    private Boolean emailAvailable;
+}
@@ -0,0 +1,48 @@
+package com.mengnankk.auth.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 认证事件发件箱实体类
+ * 与业务数据在同一事务中写入，由OutboxRelay异步投递到RabbitMQ后删除
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("auth_event_outbox")
+@ApiModel(value = "AuthEventOutbox对象", description = "认证事件发件箱")
+public class AuthEventOutbox {
+
+    @ApiModelProperty(value = "ID")
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    @ApiModelProperty(value = "交换机")
+    @TableField("exchange")
+    private String exchange;
+
+    @ApiModelProperty(value = "路由键")
+    @TableField("routing_key")
+    private String routingKey;
+
+    @ApiModelProperty(value = "消息体（已由消息转换器序列化）")
+    @TableField("payload")
+    private byte[] payload;
+
+    @ApiModelProperty(value = "消息内容类型")
+    @TableField("content_type")
+    private String contentType;
+
+    @ApiModelProperty(value = "消息头（JSON）")
+    @TableField("headers")
+    private String headers;
+
+    @ApiModelProperty(value = "创建时间")
+    @TableField(value = "created_time", fill = FieldFill.INSERT)
+    private LocalDateTime createdTime;
+}
@@ -15,7 +15,7 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(callSuper = false)
 @TableName("role_permissions")
 @ApiModel(value = "RolePermission对象", description = "角色权限关联")
-class RolePermission {
+public class RolePermission {
 
     @ApiModelProperty(value = "ID")
     @TableId(value = "id", type = IdType.AUTO)
@@ -15,7 +15,7 @@ import java.time.LocalDateTime;
 @EqualsAndHashCode(callSuper = false)
 @TableName("user_roles")
 @ApiModel(value = "UserRole对象", description = "用户角色关联")
-class UserRole {
+public class UserRole {
 
     @ApiModelProperty(value = "ID")
     @TableId(value = "id", type = IdType.AUTO)
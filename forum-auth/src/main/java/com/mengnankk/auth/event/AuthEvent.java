@@ -0,0 +1,34 @@
+package com.mengnankk.auth.event;
+
+/**
+ * 认证事件
+ * 每种事件对应一个不可变记录类型，字段固定且带版本号；时间戳统一为毫秒时间戳。
+ */
+public sealed interface AuthEvent permits UserRegisteredEvent, UserLoggedInEvent, UserLoggedOutEvent,
+        PasswordChangedEvent, EmailVerifiedEvent, PhoneVerifiedEvent, OAuth2LoggedInEvent {
+
+    /** 事件结构版本号，字段变更时递增 */
+    int SCHEMA_VERSION = 1;
+
+    /** 事件来源 */
+    String SOURCE = "auth-service";
+
+    /**
+     * 事件类型（取值见AuthConstants.Events，与路由键一致）
+     */
+    String getEventType();
+
+    long timestamp();
+
+    Long userId();
+
+    String username();
+
+    default int getVersion() {
+        return SCHEMA_VERSION;
+    }
+
+    default String getSource() {
+        return SOURCE;
+    }
+}
@@ -0,0 +1,133 @@
+package com.mengnankk.auth.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 认证事件二进制编码
+ * 格式（v1）：版本号(1字节) + 类型码(1字节) + 时间戳(8字节) + 用户ID + 用户名 + 各事件类型的附加字段。
+ * 字段按固定顺序写入，不重复字段名；可空字段以1字节标记开头，字符串为2字节长度前缀的UTF-8。
+ */
+public final class AuthEventCodec {
+
+    /** 二进制编码的消息内容类型 */
+    public static final String CONTENT_TYPE = "application/x-auth-event";
+
+    private static final byte TYPE_REGISTER = 1;
+    private static final byte TYPE_LOGIN = 2;
+    private static final byte TYPE_LOGOUT = 3;
+    private static final byte TYPE_PASSWORD_CHANGE = 4;
+    private static final byte TYPE_EMAIL_VERIFY = 5;
+    private static final byte TYPE_PHONE_VERIFY = 6;
+    private static final byte TYPE_OAUTH2_LOGIN = 7;
+
+    /** 常见事件编码后的长度，用作输出缓冲区初始容量 */
+    private static final int INITIAL_BUFFER_SIZE = 64;
+
+    /**
+     * 编码事件
+     */
+    public static byte[] encode(AuthEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(AuthEvent.SCHEMA_VERSION);
+            out.writeByte(typeCode(event));
+            out.writeLong(event.timestamp());
+            writeLong(out, event.userId());
+            writeString(out, event.username());
+
+            if (event instanceof UserRegisteredEvent e) {
+                writeString(out, e.email());
+            } else if (event instanceof UserLoggedInEvent e) {
+                writeString(out, e.loginType());
+            } else if (event instanceof EmailVerifiedEvent e) {
+                writeString(out, e.email());
+            } else if (event instanceof PhoneVerifiedEvent e) {
+                writeString(out, e.phone());
+            } else if (event instanceof OAuth2LoggedInEvent e) {
+                writeString(out, e.provider());
+                writeString(out, e.providerUserId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("认证事件编码失败", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解码事件
+     */
+    public static AuthEvent decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readUnsignedByte();
+            if (version > AuthEvent.SCHEMA_VERSION) {
+                throw new IllegalArgumentException("不支持的认证事件版本: " + version);
+            }
+            byte type = in.readByte();
+            long timestamp = in.readLong();
+            Long userId = readLong(in);
+            String username = readString(in);
+
+            return switch (type) {
+                case TYPE_REGISTER -> new UserRegisteredEvent(timestamp, userId, username, readString(in));
+                case TYPE_LOGIN -> new UserLoggedInEvent(timestamp, userId, username, readString(in));
+                case TYPE_LOGOUT -> new UserLoggedOutEvent(timestamp, userId, username);
+                case TYPE_PASSWORD_CHANGE -> new PasswordChangedEvent(timestamp, userId, username);
+                case TYPE_EMAIL_VERIFY -> new EmailVerifiedEvent(timestamp, userId, username, readString(in));
+                case TYPE_PHONE_VERIFY -> new PhoneVerifiedEvent(timestamp, userId, username, readString(in));
+                case TYPE_OAUTH2_LOGIN -> new OAuth2LoggedInEvent(timestamp, userId, username,
+                        readString(in), readString(in));
+                default -> throw new IllegalArgumentException("未知的认证事件类型: " + type);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException("认证事件解码失败", e);
+        }
+    }
+
+    private static byte typeCode(AuthEvent event) {
+        if (event instanceof UserRegisteredEvent) {
+            return TYPE_REGISTER;
+        } else if (event instanceof UserLoggedInEvent) {
+            return TYPE_LOGIN;
+        } else if (event instanceof UserLoggedOutEvent) {
+            return TYPE_LOGOUT;
+        } else if (event instanceof PasswordChangedEvent) {
+            return TYPE_PASSWORD_CHANGE;
+        } else if (event instanceof EmailVerifiedEvent) {
+            return TYPE_EMAIL_VERIFY;
+        } else if (event instanceof PhoneVerifiedEvent) {
+            return TYPE_PHONE_VERIFY;
+        }
+        return TYPE_OAUTH2_LOGIN;
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private AuthEventCodec() {
+        // 工具类不允许实例化
+    }
+}
@@ -0,0 +1,73 @@
+package com.mengnankk.auth.event;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.Set;
+
+/**
+ * 认证事件消息转换器
+ * 发送时按事件类型选择编码：消费方已声明支持二进制的事件类型使用AuthEventCodec，其余使用JSON；
+ * 接收时按消息的content-type选择解码方式，两种编码可以并存，消费方逐个事件类型切换。
+ */
+public class AuthEventMessageConverter implements MessageConverter {
+
+    /** 事件结构版本号消息头 */
+    public static final String HEADER_EVENT_VERSION = "x-auth-event-version";
+
+    private final MessageConverter jsonConverter;
+    private final Set<String> binaryEventTypes;
+    private final DistributionSummary jsonSizeSummary;
+    private final DistributionSummary binarySizeSummary;
+
+    public AuthEventMessageConverter(MessageConverter jsonConverter, Set<String> binaryEventTypes,
+                                     MeterRegistry meterRegistry) {
+        this.jsonConverter = jsonConverter;
+        this.binaryEventTypes = Set.copyOf(binaryEventTypes);
+        this.jsonSizeSummary = payloadSizeSummary(meterRegistry, "json");
+        this.binarySizeSummary = payloadSizeSummary(meterRegistry, "binary");
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+        if (!(object instanceof AuthEvent event)) {
+            return jsonConverter.toMessage(object, messageProperties);
+        }
+
+        messageProperties.setHeader(HEADER_EVENT_VERSION, event.getVersion());
+        if (binaryEventTypes.contains(event.getEventType())) {
+            byte[] body = AuthEventCodec.encode(event);
+            messageProperties.setContentType(AuthEventCodec.CONTENT_TYPE);
+            messageProperties.setContentLength(body.length);
+            binarySizeSummary.record(body.length);
+            return new Message(body, messageProperties);
+        }
+
+        Message message = jsonConverter.toMessage(event, messageProperties);
+        jsonSizeSummary.record(message.getBody().length);
+        return message;
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        if (AuthEventCodec.CONTENT_TYPE.equals(message.getMessageProperties().getContentType())) {
+            try {
+                return AuthEventCodec.decode(message.getBody());
+            } catch (RuntimeException e) {
+                throw new MessageConversionException("认证事件解码失败", e);
+            }
+        }
+        return jsonConverter.fromMessage(message);
+    }
+
+    private static DistributionSummary payloadSizeSummary(MeterRegistry meterRegistry, String encoding) {
+        return DistributionSummary.builder("auth.events.payload.size")
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.mengnankk.auth.event;
+
+import com.mengnankk.auth.constants.AuthConstants;
+
+/**
+ * 邮箱验证事件
+ */
+public record EmailVerifiedEvent(long timestamp, Long userId, String username, String email) implements AuthEvent {
+
+    @Override
+    public String getEventType() {
+        return AuthConstants.Events.EMAIL_VERIFY;
+    }
+}
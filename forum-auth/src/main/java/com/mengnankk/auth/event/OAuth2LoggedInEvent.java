@@ -0,0 +1,14 @@
+package com.mengnankk.auth.event;
+
+import com.mengnankk.auth.constants.AuthConstants;
+
+/**
+ * OAuth2登录事件
+ */
+public record OAuth2LoggedInEvent(long timestamp, Long userId, String username, String provider, String providerUserId) implements AuthEvent {
+
+    @Override
+    public String getEventType() {
+        return AuthConstants.Events.OAUTH2_LOGIN;
+    }
+}
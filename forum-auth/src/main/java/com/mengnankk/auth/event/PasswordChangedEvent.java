@@ -0,0 +1,14 @@
+package com.mengnankk.auth.event;
+
+import com.mengnankk.auth.constants.AuthConstants;
+
+/**
+ * 密码修改事件
+ */
+public record PasswordChangedEvent(long timestamp, Long userId, String username) implements AuthEvent {
+
+    @Override
+    public String getEventType() {
+        return AuthConstants.Events.PASSWORD_CHANGE;
+    }
+}
@@ -0,0 +1,14 @@
+package com.mengnankk.auth.event;
+
+import com.mengnankk.auth.constants.AuthConstants;
+
+/**
+ * 手机验证事件
+ */
+public record PhoneVerifiedEvent(long timestamp, Long userId, String username, String phone) implements AuthEvent {
+
+    @Override
+    public String getEventType() {
+        return AuthConstants.Events.PHONE_VERIFY;
+    }
+}
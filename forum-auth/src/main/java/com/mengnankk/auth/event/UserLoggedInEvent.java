@@ -0,0 +1,14 @@
+package com.mengnankk.auth.event;
+
+import com.mengnankk.auth.constants.AuthConstants;
+
+/**
+ * 用户登录事件
+ */
+public record UserLoggedInEvent(long timestamp, Long userId, String username, String loginType) implements AuthEvent {
+
+    @Override
+    public String getEventType() {
+        return AuthConstants.Events.USER_LOGIN;
+    }
+}
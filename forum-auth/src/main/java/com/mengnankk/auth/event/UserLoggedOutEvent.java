@@ -0,0 +1,14 @@
+package com.mengnankk.auth.event;
+
+import com.mengnankk.auth.constants.AuthConstants;
+
+/**
+ * 用户登出事件
+ */
+public record UserLoggedOutEvent(long timestamp, Long userId, String username) implements AuthEvent {
+
+    @Override
+    public String getEventType() {
+        return AuthConstants.Events.USER_LOGOUT;
+    }
+}
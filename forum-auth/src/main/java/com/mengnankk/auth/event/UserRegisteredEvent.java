@@ -0,0 +1,14 @@
+package com.mengnankk.auth.event;
+
+import com.mengnankk.auth.constants.AuthConstants;
+
+/**
+ * 用户注册事件
+ */
+public record UserRegisteredEvent(long timestamp, Long userId, String username, String email) implements AuthEvent {
+
+    @Override
+    public String getEventType() {
+        return AuthConstants.Events.USER_REGISTER;
+    }
+}
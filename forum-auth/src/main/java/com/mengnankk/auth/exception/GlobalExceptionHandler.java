@@ -0,0 +1,38 @@
+package com.mengnankk.auth.exception;
+
+import com.mengnankk.auth.dto.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * 全局异常处理
+ * 处理在进入控制器方法之前抛出的异常（如限流切面），以及控制器需要映射为特定状态码的异常
+ */
+@Slf4j
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    /**
+     * 限流异常返回429及Retry-After
+     */
+    @ExceptionHandler(RateLimitException.class)
+    public ResponseEntity<Result<Void>> handleRateLimitException(RateLimitException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Result.error(HttpStatus.TOO_MANY_REQUESTS.value(), e.getMessage()));
+    }
+
+    /**
+     * 服务繁忙异常返回503及Retry-After
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<Result<Void>> handleServiceBusyException(ServiceBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Result.error(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+    }
+}
@@ -0,0 +1,19 @@
+package com.mengnankk.auth.exception;
+
+/**
+ * 限流异常
+ */
+public class RateLimitException extends AuthException {
+
+    /** 建议客户端重试前等待的秒数 */
+    private final long retryAfterSeconds;
+
+    public RateLimitException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
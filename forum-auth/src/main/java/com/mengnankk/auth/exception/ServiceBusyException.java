@@ -0,0 +1,19 @@
+package com.mengnankk.auth.exception;
+
+/**
+ * 服务繁忙异常（处理能力已饱和，需客户端稍后重试）
+ */
+public class ServiceBusyException extends AuthException {
+
+    /** 建议客户端重试前等待的秒数 */
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,5 +1,7 @@
 package com.mengnankk.auth.feign;
 
+import com.mengnankk.auth.dto.AuthorityCheckRequest;
+import com.mengnankk.auth.dto.AuthorityCheckResponse;
 import com.mengnankk.auth.dto.Result;
 import com.mengnankk.auth.dto.UserInfo;
 import org.springframework.cloud.openfeign.FeignClient;
@@ -11,7 +13,7 @@ import java.util.List;
  * 认证服务Feign客户端接口
  * 供其他模块调用认证服务
  */
-@FeignClient(name = "forum-auth", path = "/api/auth")
+@FeignClient(name = "forum-auth", path = "/api/auth/internal")
 public interface AuthFeignClient {
 
     /**
@@ -53,4 +55,16 @@ public interface AuthFeignClient {
      */
     @GetMapping("/user/{userId}/roles")
     Result<List<String>> getUserRoles(@PathVariable("userId") Long userId);
+
+    /**
+     * 批量获取用户信息
+     */
+    @PostMapping("/users/batch")
+    Result<List<UserInfo>> getUsersBatch(@RequestBody List<Long> userIds);
+
+    /**
+     * 批量检查用户权限和角色
+     */
+    @PostMapping("/authority/check")
+    Result<AuthorityCheckResponse> checkAuthorities(@RequestBody AuthorityCheckRequest request);
 }
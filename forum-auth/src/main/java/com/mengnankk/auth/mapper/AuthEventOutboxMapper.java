@@ -0,0 +1,22 @@
+package com.mengnankk.auth.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.mengnankk.auth.entity.AuthEventOutbox;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 认证事件发件箱数据访问层
+ */
+@Mapper
+public interface AuthEventOutboxMapper extends BaseMapper<AuthEventOutbox> {
+
+    /**
+     * 锁定一批待投递事件，已被其他节点锁定的行直接跳过，多个节点可并行投递
+     */
+    @Select("SELECT * FROM auth_event_outbox ORDER BY id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<AuthEventOutbox> lockBatch(@Param("limit") int limit);
+}
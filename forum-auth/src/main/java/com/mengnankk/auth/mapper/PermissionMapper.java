@@ -2,10 +2,14 @@ package com.mengnankk.auth.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.mengnankk.auth.entity.Permission;
+import com.mengnankk.auth.entity.RolePermission;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 /**
  * 权限数据访问层
@@ -31,4 +35,16 @@ public interface PermissionMapper extends BaseMapper<Permission> {
      */
     @Delete("DELETE FROM role_permissions WHERE role_id = #{roleId}")
     int removeAllPermissionsFromRole(@Param("roleId") Long roleId);
+
+    /**
+     * 查询全部角色权限关联
+     */
+    @Select("SELECT role_id, permission_id FROM role_permissions")
+    List<RolePermission> findAllRolePermissions();
+
+    /**
+     * 查询角色的权限ID列表
+     */
+    @Select("SELECT permission_id FROM role_permissions WHERE role_id = #{roleId}")
+    List<Long> findRolePermissionIds(@Param("roleId") Long roleId);
 }
@@ -2,8 +2,10 @@ package com.mengnankk.auth.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.mengnankk.auth.entity.Role;
+import com.mengnankk.auth.entity.UserRole;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -38,16 +40,33 @@ public interface RoleMapper extends BaseMapper<Role> {
      */
     @Select("SELECT r.role_name FROM roles r " +
             "INNER JOIN user_roles ur ON r.id = ur.role_id " +
-            "WHERE ur.user_id = #{userId}")
+            "WHERE ur.user_id = #{userId} AND r.status = 1 AND r.deleted = 0")
     List<String> findUserRoles(@Param("userId") Long userId);
 
+    /**
+     * 查询用户的角色ID列表
+     */
+    @Select("SELECT role_id FROM user_roles WHERE user_id = #{userId}")
+    List<Long> findUserRoleIds(@Param("userId") Long userId);
+
+    /**
+     * 批量查询用户角色关联
+     */
+    @Select({"<script>",
+            "SELECT user_id, role_id FROM user_roles WHERE user_id IN",
+            "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach>",
+            "</script>"})
+    List<UserRole> findUserRoleRelations(@Param("userIds") Collection<Long> userIds);
+
     /**
      * 查询用户的权限列表
      */
     @Select("SELECT DISTINCT p.permission_name FROM permissions p " +
             "INNER JOIN role_permissions rp ON p.id = rp.permission_id " +
             "INNER JOIN user_roles ur ON rp.role_id = ur.role_id " +
-            "WHERE ur.user_id = #{userId}")
+            "INNER JOIN roles r ON r.id = ur.role_id " +
+            "WHERE ur.user_id = #{userId} AND r.status = 1 AND r.deleted = 0 " +
+            "AND p.status = 1 AND p.deleted = 0")
     List<String> findUserPermissions(@Param("userId") Long userId);
 
     /**
@@ -42,4 +42,17 @@ public interface UserMapper extends BaseMapper<User> {
             "INNER JOIN user_roles ur ON rp.role_id = ur.role_id " +
             "WHERE ur.user_id = #{userId}")
     List<String> findUserPermissions(@Param("userId") Long userId);
+
+    /**
+     * 一次查询找出与用户名、邮箱、手机号任一冲突的用户
+     */
+    @Select("<script>" +
+            "SELECT id, username, email, phone FROM users WHERE deleted = 0 AND (username = #{username}" +
+            "<if test='email != null and email != \"\"'> OR email = #{email}</if>" +
+            "<if test='phone != null and phone != \"\"'> OR phone = #{phone}</if>" +
+            ") LIMIT 3" +
+            "</script>")
+    List<User> findConflicts(@Param("username") String username,
+                             @Param("email") String email,
+                             @Param("phone") String phone);
 }
@@ -0,0 +1,110 @@
+package com.mengnankk.auth.mq;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 批量消费基类
+ * 一批消息先整体解码并交给handleBatch处理；整批失败时退化为逐条处理以隔离毒消息。
+ * 无法解码或单独处理仍失败的消息逐条拒绝（不重新入队，转入死信队列），其余消息按未被拒绝的最大投递标签一次性确认。
+ *
+ * @param <T> 消息体类型
+ */
+@Slf4j
+public abstract class AbstractBatchConsumer<T> {
+
+    private final MessageConverter messageConverter;
+    private final Class<T> payloadType;
+
+    protected AbstractBatchConsumer(MessageConverter messageConverter, Class<T> payloadType) {
+        this.messageConverter = messageConverter;
+        this.payloadType = payloadType;
+    }
+
+    /**
+     * 处理一批消息，子类的@RabbitListener方法直接委托到这里
+     */
+    protected void consume(List<Message> messages, Channel channel) throws IOException {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        List<T> payloads = new ArrayList<>(messages.size());
+        List<Message> decoded = new ArrayList<>(messages.size());
+        Set<Long> rejectedTags = new HashSet<>();
+        for (Message message : messages) {
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            T payload = decode(message);
+            if (payload == null) {
+                reject(channel, deliveryTag, "无法解码");
+                rejectedTags.add(deliveryTag);
+                continue;
+            }
+            payloads.add(payload);
+            decoded.add(message);
+        }
+
+        if (!payloads.isEmpty()) {
+            try {
+                handleBatch(payloads);
+            } catch (Exception e) {
+                log.warn("批量处理失败，逐条重试以隔离毒消息: size={}, error={}", payloads.size(), e.getMessage());
+                processIndividually(payloads, decoded, channel, rejectedTags);
+            }
+        }
+
+        // 已拒绝的标签不能再确认（否则通道以PRECONDITION_FAILED关闭），
+        // 按未被拒绝的最大标签做multiple确认，其下已拒绝的消息不再处于未确认状态，不受影响
+        long ackTag = 0;
+        for (Message message : messages) {
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            if (!rejectedTags.contains(deliveryTag)) {
+                ackTag = Math.max(ackTag, deliveryTag);
+            }
+        }
+        if (ackTag > 0) {
+            channel.basicAck(ackTag, true);
+        }
+    }
+
+    /**
+     * 处理一批已解码的消息，抛出异常时整批退化为逐条处理
+     */
+    protected abstract void handleBatch(List<T> payloads) throws Exception;
+
+    private void processIndividually(List<T> payloads, List<Message> messages, Channel channel,
+                                     Set<Long> rejectedTags) throws IOException {
+        for (int i = 0; i < payloads.size(); i++) {
+            try {
+                handleBatch(List.of(payloads.get(i)));
+            } catch (Exception e) {
+                long deliveryTag = messages.get(i).getMessageProperties().getDeliveryTag();
+                reject(channel, deliveryTag, e.getMessage());
+                rejectedTags.add(deliveryTag);
+            }
+        }
+    }
+
+    private T decode(Message message) {
+        try {
+            Object payload = messageConverter.fromMessage(message);
+            return payloadType.isInstance(payload) ? payloadType.cast(payload) : null;
+        } catch (Exception e) {
+            log.debug("消息解码失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void reject(Channel channel, long deliveryTag, String reason) throws IOException {
+        log.error("消息处理失败，转入死信队列: deliveryTag={}, reason={}", deliveryTag, reason);
+        channel.basicNack(deliveryTag, false, false);
+    }
+}
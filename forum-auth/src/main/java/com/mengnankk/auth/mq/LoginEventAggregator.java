@@ -0,0 +1,77 @@
+package com.mengnankk.auth.mq;
+
+import com.mengnankk.auth.config.RabbitMQConfig;
+import com.mengnankk.auth.event.UserLoggedInEvent;
+import com.mengnankk.auth.util.RedisKeys;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录事件按分钟聚合（批量消费参考实现）
+ * 每批事件先在内存中按"分钟 + 登录方式"汇总，再通过一次管道写入Redis哈希 auth:stats:login:{分钟}。
+ * 投递语义为至少一次，重投时计数可能略有偏大，适用于统计类场景。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "auth.mq.consumers.login-aggregator", name = "enabled", havingValue = "true")
+public class LoginEventAggregator extends AbstractBatchConsumer<UserLoggedInEvent> {
+
+    private static final String UNKNOWN_LOGIN_TYPE = "unknown";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${auth.mq.consumers.login-aggregator.retention-hours:48}")
+    private Long retentionHours;
+
+    public LoginEventAggregator(MessageConverter messageConverter, StringRedisTemplate stringRedisTemplate) {
+        super(messageConverter, UserLoggedInEvent.class);
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.USER_LOGIN_QUEUE,
+            containerFactory = RabbitMQConfig.BATCH_LISTENER_CONTAINER_FACTORY)
+    public void onLoginEvents(List<Message> messages, Channel channel) throws IOException {
+        consume(messages, channel);
+    }
+
+    @Override
+    protected void handleBatch(List<UserLoggedInEvent> events) {
+        // 分钟 -> 登录方式 -> 次数
+        Map<Long, Map<String, Long>> counters = new HashMap<>();
+        for (UserLoggedInEvent event : events) {
+            long minute = TimeUnit.MILLISECONDS.toMinutes(event.timestamp());
+            String loginType = event.loginType() != null ? event.loginType() : UNKNOWN_LOGIN_TYPE;
+            counters.computeIfAbsent(minute, k -> new HashMap<>()).merge(loginType, 1L, Long::sum);
+        }
+
+        long ttlSeconds = TimeUnit.HOURS.toSeconds(retentionHours);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            counters.forEach((minute, byType) -> writeMinute(connection, minute, byType, ttlSeconds));
+            return null;
+        });
+        log.debug("登录事件聚合完成: events={}, minutes={}", events.size(), counters.size());
+    }
+
+    private void writeMinute(RedisConnection connection, long minute, Map<String, Long> byType, long ttlSeconds) {
+        byte[] key = (RedisKeys.LOGIN_STATS + minute).getBytes(StandardCharsets.UTF_8);
+        byType.forEach((loginType, count) ->
+                connection.hashCommands().hIncrBy(key, loginType.getBytes(StandardCharsets.UTF_8), count));
+        connection.keyCommands().expire(key, ttlSeconds);
+    }
+}
@@ -0,0 +1,71 @@
+package com.mengnankk.auth.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内限流器（第一级）
+ * 只缓存分布式限流的拒绝结果：Key被Redis拒绝后在本地记录"封禁截止时间"（即Retry-After），
+ * 封禁期间的请求直接拒绝，不再访问Redis。本地不做计数判定，放行与否始终以分布式限流为准。
+ * 跟踪的Key数量有上限。
+ */
+@Component
+public class LocalRateLimiter {
+
+    @Value("${auth.ratelimit.local.maximum-keys:100000}")
+    private Long maximumKeys;
+
+    @Value("${auth.ratelimit.local.key-expire-seconds:600}")
+    private Long keyExpireSeconds;
+
+    /** Key -> 封禁截止时间(毫秒) */
+    private Cache<String, Long> blockedUntil;
+
+    @PostConstruct
+    public void init() {
+        this.blockedUntil = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterWrite(keyExpireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 本地判定
+     *
+     * @return 需要等待的毫秒数，0表示本地放行（仍需经过分布式限流）
+     */
+    public long tryAcquire(String key) {
+        Long until = blockedUntil.getIfPresent(key);
+        if (until == null) {
+            return 0;
+        }
+        long remaining = until - System.currentTimeMillis();
+        if (remaining <= 0) {
+            blockedUntil.asMap().remove(key, until);
+            return 0;
+        }
+        return remaining;
+    }
+
+    /**
+     * 分布式限流拒绝后在本地封禁该Key，封禁期间的请求不再访问Redis
+     */
+    public void block(String key, long retryAfterMillis) {
+        if (retryAfterMillis <= 0) {
+            return;
+        }
+        blockedUntil.asMap().merge(key, System.currentTimeMillis() + retryAfterMillis, Math::max);
+    }
+
+    /**
+     * 当前跟踪的Key数量
+     */
+    public long trackedKeys() {
+        return blockedUntil.estimatedSize();
+    }
+}
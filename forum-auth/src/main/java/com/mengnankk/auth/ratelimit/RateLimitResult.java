@@ -0,0 +1,31 @@
+package com.mengnankk.auth.ratelimit;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 限流判定结果
+ */
+@Getter
+@AllArgsConstructor
+public class RateLimitResult {
+
+    /** 是否放行 */
+    private final boolean allowed;
+
+    /** 配额上限 */
+    private final long limit;
+
+    /** 剩余配额 */
+    private final long remaining;
+
+    /** 建议重试等待时间（毫秒），放行时为0 */
+    private final long retryAfterMillis;
+
+    /**
+     * 建议重试等待时间（秒，向上取整）
+     */
+    public long getRetryAfterSeconds() {
+        return (retryAfterMillis + 999) / 1000;
+    }
+}
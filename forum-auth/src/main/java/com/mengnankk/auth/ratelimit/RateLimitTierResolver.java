@@ -0,0 +1,70 @@
+package com.mengnankk.auth.ratelimit;
+
+import com.mengnankk.auth.config.RateLimitTierProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.endpoint.event.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 用户限流档位解析
+ * 配置刷新时重建不可变查找表，热路径只读内存，不访问Redis或数据库
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateLimitTierResolver {
+
+    private final RateLimitTierProperties properties;
+
+    private volatile Tiers tiers = new Tiers(1.0, Map.of());
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * 配置属性在EnvironmentChangeEvent中重新绑定，RefreshScopeRefreshedEvent在其之后发布
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        rebuild();
+    }
+
+    /**
+     * 按用户角色计算实际限额
+     *
+     * @param baseLimit 注解上配置的基础限额
+     * @param roles     用户角色（不含ROLE_前缀）
+     */
+    public int resolveLimit(int baseLimit, Collection<String> roles) {
+        Tiers current = this.tiers;
+        double multiplier = current.defaultMultiplier();
+        if (roles != null) {
+            for (String role : roles) {
+                Double roleMultiplier = current.roleMultipliers().get(role);
+                if (roleMultiplier != null && roleMultiplier > multiplier) {
+                    multiplier = roleMultiplier;
+                }
+            }
+        }
+        return (int) Math.max(Math.round(baseLimit * multiplier), 1);
+    }
+
+    private void rebuild() {
+        Map<String, Double> roleMultipliers = properties.getRoleMultipliers() != null
+                ? Map.copyOf(properties.getRoleMultipliers())
+                : Map.of();
+        this.tiers = new Tiers(properties.getDefaultMultiplier(), roleMultipliers);
+        log.info("用户限流档位已加载: default={}, roles={}", properties.getDefaultMultiplier(), roleMultipliers);
+    }
+
+    private record Tiers(double defaultMultiplier, Map<String, Double> roleMultipliers) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.mengnankk.auth.ratelimit;
+
+import com.mengnankk.auth.annotation.RateLimit;
+import com.mengnankk.auth.util.RedisKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 基于Redis的分布式限流器
+ * 每次判定在服务端执行一个Lua脚本，计数与判断原子完成，只需一次网络往返
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisRateLimiter {
+
+    @SuppressWarnings("rawtypes")
+    private static final Map<RateLimit.Algorithm, RedisScript<List>> SCRIPTS = new EnumMap<>(RateLimit.Algorithm.class);
+
+    static {
+        SCRIPTS.put(RateLimit.Algorithm.FIXED_WINDOW, loadScript("fixed_window.lua"));
+        SCRIPTS.put(RateLimit.Algorithm.SLIDING_WINDOW_LOG, loadScript("sliding_window_log.lua"));
+        SCRIPTS.put(RateLimit.Algorithm.SLIDING_WINDOW_COUNTER, loadScript("sliding_window_counter.lua"));
+        SCRIPTS.put(RateLimit.Algorithm.TOKEN_BUCKET, loadScript("token_bucket.lua"));
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 尝试获取一次配额
+     *
+     * @param key          限流Key（不含前缀）
+     * @param algorithm    限流算法
+     * @param limit        窗口内允许的请求数（令牌桶为桶容量）
+     * @param windowMillis 窗口长度（令牌桶为补满整桶所需时间）
+     */
+    @SuppressWarnings("unchecked")
+    public RateLimitResult tryAcquire(String key, RateLimit.Algorithm algorithm, int limit, long windowMillis) {
+        String redisKey = RedisKeys.RATE_LIMIT + algorithm.name().toLowerCase() + ":" + key;
+        List<Long> reply = stringRedisTemplate.execute(SCRIPTS.get(algorithm),
+                Collections.singletonList(redisKey),
+                String.valueOf(limit), String.valueOf(windowMillis), UUID.randomUUID().toString());
+
+        if (reply == null || reply.size() < 3) {
+            log.warn("限流脚本返回异常，默认放行: key={}, reply={}", redisKey, reply);
+            return new RateLimitResult(true, limit, limit, 0);
+        }
+        return new RateLimitResult(reply.get(0) == 1L, limit, Math.max(reply.get(1), 0), reply.get(2));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static RedisScript<List> loadScript(String name) {
+        DefaultRedisScript<List> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("lua/ratelimit/" + name));
+        script.setResultType(List.class);
+        return script;
+    }
+}
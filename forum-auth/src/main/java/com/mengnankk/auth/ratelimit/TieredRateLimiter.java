@@ -0,0 +1,66 @@
+package com.mengnankk.auth.ratelimit;
+
+import com.mengnankk.auth.annotation.RateLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 两级限流器
+ * 第一级为进程内的拒绝结果缓存，拦截已被分布式限流拒绝、仍在等待期内的Key，被拒绝的请求没有任何网络开销；
+ * 第二级为基于Redis的分布式精确限流，未被第一级拦截的请求均由其判定。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TieredRateLimiter {
+
+    private final LocalRateLimiter localRateLimiter;
+    private final RedisRateLimiter redisRateLimiter;
+    private final MeterRegistry meterRegistry;
+
+    private Counter localRejectedCounter;
+    private Counter remoteAllowedCounter;
+    private Counter remoteRejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        this.localRejectedCounter = decisionCounter("local", "rejected");
+        this.remoteAllowedCounter = decisionCounter("remote", "allowed");
+        this.remoteRejectedCounter = decisionCounter("remote", "rejected");
+        Gauge.builder("auth.ratelimit.local.keys", localRateLimiter, LocalRateLimiter::trackedKeys)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 尝试获取一次配额
+     */
+    public RateLimitResult tryAcquire(String key, RateLimit.Algorithm algorithm, int limit, long windowMillis) {
+        String localKey = algorithm.name() + ":" + key;
+        long localRetryAfter = localRateLimiter.tryAcquire(localKey);
+        if (localRetryAfter > 0) {
+            localRejectedCounter.increment();
+            return new RateLimitResult(false, limit, 0, localRetryAfter);
+        }
+
+        RateLimitResult result = redisRateLimiter.tryAcquire(key, algorithm, limit, windowMillis);
+        if (result.isAllowed()) {
+            remoteAllowedCounter.increment();
+        } else {
+            remoteRejectedCounter.increment();
+            localRateLimiter.block(localKey, result.getRetryAfterMillis());
+        }
+        return result;
+    }
+
+    private Counter decisionCounter(String tier, String result) {
+        return Counter.builder("auth.ratelimit.decisions")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
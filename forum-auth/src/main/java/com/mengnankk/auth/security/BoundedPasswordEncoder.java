@@ -0,0 +1,33 @@
+package com.mengnankk.auth.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * 有界密码编码器
+ * 将慢哈希的编码与校验委托给PasswordHashingExecutor执行，不在请求线程上直接计算
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor executor;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute(PasswordHashingExecutor.OPERATION_ENCODE, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute(PasswordHashingExecutor.OPERATION_MATCHES, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
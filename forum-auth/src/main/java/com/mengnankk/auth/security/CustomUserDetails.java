@@ -7,7 +7,9 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -27,11 +29,31 @@ public class CustomUserDetails implements UserDetails {
     private final boolean emailVerified;
     private final boolean phoneVerified;
     private final Collection<? extends GrantedAuthority> authorities;
+    /** 是否仅由Token中的Claims构建（无状态认证模式，不含用户资料字段） */
+    private final boolean claimsOnly;
+    private final List<String> roles;
+    private final List<String> permissions;
+    /** 角色名集合，用于O(1)角色检查 */
+    private final Set<String> roleSet;
+    /** 权限位图，用于O(1)权限检查 */
+    private final PermissionBits permissionBits;
 
     public CustomUserDetails(User user, List<String> roles, List<String> permissions) {
+        this(user, roles, permissions, PermissionBits.of(permissions));
+    }
+
+    public CustomUserDetails(User user, List<String> roles, List<String> permissions, PermissionBits permissionBits) {
+        this(user, user.getPassword(), roles, permissions, permissionBits);
+    }
+
+    /**
+     * 使用单独加载的密码哈希构建（缓存中的用户不含密码）
+     */
+    public CustomUserDetails(User user, String password, List<String> roles, List<String> permissions,
+                             PermissionBits permissionBits) {
         this.userId = user.getId();
         this.username = user.getUsername();
-        this.password = user.getPassword();
+        this.password = password;
         this.email = user.getEmail();
         this.phone = user.getPhone();
         this.nickname = user.getNickname();
@@ -39,11 +61,73 @@ public class CustomUserDetails implements UserDetails {
         this.enabled = user.isEnabled();
         this.emailVerified = user.isEmailVerified();
         this.phoneVerified = user.isPhoneVerified();
+        this.claimsOnly = false;
+        this.roles = roles;
+        this.permissions = permissions;
+        this.roleSet = new HashSet<>(roles);
+        this.permissionBits = permissionBits;
         
         // 合并角色和权限为权限集合
         this.authorities = buildAuthorities(roles, permissions);
     }
 
+    /**
+     * 由用户认证快照构建用户详情（不含密码，仅用于请求认证）
+     */
+    public CustomUserDetails(UserAuthSnapshot snapshot, PermissionBits permissionBits) {
+        this.userId = snapshot.getUserId();
+        this.username = snapshot.getUsername();
+        this.password = null;
+        this.email = snapshot.getEmail();
+        this.phone = snapshot.getPhone();
+        this.nickname = snapshot.getNickname();
+        this.avatar = snapshot.getAvatar();
+        this.enabled = snapshot.isEnabled();
+        this.emailVerified = snapshot.isEmailVerified();
+        this.phoneVerified = snapshot.isPhoneVerified();
+        this.claimsOnly = false;
+        this.roles = snapshot.getRoles();
+        this.permissions = snapshot.getPermissions();
+        this.roleSet = new HashSet<>(roles);
+        this.permissionBits = permissionBits;
+        this.authorities = buildAuthorities(roles, permissions);
+    }
+
+    private CustomUserDetails(Long userId, String username, List<String> roles, List<String> permissions,
+                              PermissionBits permissionBits) {
+        this.userId = userId;
+        this.username = username;
+        this.password = null;
+        this.email = null;
+        this.phone = null;
+        this.nickname = null;
+        this.avatar = null;
+        this.enabled = true;
+        this.emailVerified = false;
+        this.phoneVerified = false;
+        this.claimsOnly = true;
+        this.roles = roles;
+        this.permissions = permissions;
+        this.roleSet = new HashSet<>(roles);
+        this.permissionBits = permissionBits;
+        this.authorities = buildAuthorities(roles, permissions);
+    }
+
+    /**
+     * 由Token中的角色/权限快照构建用户详情，无需访问Redis或数据库
+     */
+    public static CustomUserDetails fromClaims(Long userId, String username, List<String> roles, List<String> permissions) {
+        return fromClaims(userId, username, roles, permissions, PermissionBits.of(permissions));
+    }
+
+    /**
+     * 由Token中的角色/权限快照及引擎编号后的权限位图构建用户详情
+     */
+    public static CustomUserDetails fromClaims(Long userId, String username, List<String> roles, List<String> permissions,
+                                               PermissionBits permissionBits) {
+        return new CustomUserDetails(userId, username, roles, permissions, permissionBits);
+    }
+
     private Collection<? extends GrantedAuthority> buildAuthorities(List<String> roles, List<String> permissions) {
         // 角色添加ROLE_前缀
         List<GrantedAuthority> authorities = roles.stream()
@@ -98,36 +182,27 @@ public class CustomUserDetails implements UserDetails {
      * 检查是否有指定角色
      */
     public boolean hasRole(String role) {
-        return authorities.stream()
-                .anyMatch(auth -> auth.getAuthority().equals("ROLE_" + role));
+        return roleSet.contains(role);
     }
 
     /**
      * 检查是否有指定权限
      */
     public boolean hasPermission(String permission) {
-        return authorities.stream()
-                .anyMatch(auth -> auth.getAuthority().equals(permission));
+        return permissionBits.contains(permission);
     }
 
     /**
      * 获取所有角色（不含ROLE_前缀）
      */
     public List<String> getRoles() {
-        return authorities.stream()
-                .map(GrantedAuthority::getAuthority)
-                .filter(auth -> auth.startsWith("ROLE_"))
-                .map(auth -> auth.substring(5)) // 移除ROLE_前缀
-                .collect(Collectors.toList());
+        return roles;
     }
 
     /**
      * 获取所有权限（不含角色）
      */
     public List<String> getPermissions() {
-        return authorities.stream()
-                .map(GrantedAuthority::getAuthority)
-                .filter(auth -> !auth.startsWith("ROLE_"))
-                .collect(Collectors.toList());
+        return permissions;
     }
 }
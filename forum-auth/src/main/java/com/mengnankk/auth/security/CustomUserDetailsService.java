@@ -1,27 +1,35 @@
 package com.mengnankk.auth.security;
 
 import com.mengnankk.auth.entity.User;
+import com.mengnankk.auth.service.RbacEngine;
 import com.mengnankk.auth.service.UserService;
 import com.mengnankk.auth.service.RoleService;
+import com.mengnankk.auth.service.UserAuthSnapshotService;
+import com.mengnankk.auth.util.VerifiedToken;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 自定义用户详情服务
+ * 同时实现UserDetailsPasswordService，登录成功且哈希代价与配置不一致时由认证提供者回调升级密码哈希
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserService userService;
     private final RoleService roleService;
+    private final RbacEngine rbacEngine;
+    private final UserAuthSnapshotService userAuthSnapshotService;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -42,28 +50,63 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         log.debug("用户登录: {}, 角色: {}, 权限: {}", username, roles, permissions);
         
-        return new CustomUserDetails(user, roles, permissions);
+        // 缓存中的用户不含密码，密码哈希始终从数据库读取
+        return new CustomUserDetails(user, userService.getPasswordHash(user.getId()), roles, permissions,
+                rbacEngine.toPermissionBits(permissions));
     }
 
     /**
-     * 根据用户ID加载用户详情
+     * 根据用户ID加载用户详情（由用户认证快照构建，不含密码）
      */
     public UserDetails loadUserByUserId(Long userId) {
-        User user = userService.getById(userId);
-        if (user == null) {
+        return fromSnapshot(loadSnapshot(userId));
+    }
+
+    /**
+     * 根据已验签Token加载用户详情
+     * 用户资料、角色、权限和吊销纪元来自同一份快照，一次缓存读取完成
+     */
+    public UserDetails loadUserByToken(VerifiedToken verifiedToken) {
+        UserAuthSnapshot snapshot = loadSnapshot(verifiedToken.getUserId());
+        if (!snapshot.getUsername().equals(verifiedToken.getUsername())) {
+            throw new UsernameNotFoundException("Token用户不匹配: " + verifiedToken.getUserId());
+        }
+        long issuedAtSeconds = TimeUnit.MILLISECONDS.toSeconds(verifiedToken.getIssuedAt().getTime());
+        if (snapshot.getTokensValidAfter() > 0 && issuedAtSeconds < snapshot.getTokensValidAfter()) {
+            throw new UsernameNotFoundException("Token已失效: " + verifiedToken.getUserId());
+        }
+        return fromSnapshot(snapshot);
+    }
+
+    private UserAuthSnapshot loadSnapshot(Long userId) {
+        UserAuthSnapshot snapshot = userAuthSnapshotService.getSnapshot(userId);
+        if (snapshot == null) {
             log.warn("用户不存在: userId={}", userId);
             throw new UsernameNotFoundException("用户不存在: " + userId);
         }
 
-        if (!user.isEnabled()) {
+        if (!snapshot.isEnabled()) {
             log.warn("用户已被禁用: userId={}", userId);
             throw new UsernameNotFoundException("用户已被禁用: " + userId);
         }
+        return snapshot;
+    }
 
-        // 获取用户的角色和权限
-        List<String> roles = roleService.getUserRoles(user.getId());
-        List<String> permissions = roleService.getUserPermissions(user.getId());
+    private CustomUserDetails fromSnapshot(UserAuthSnapshot snapshot) {
+        return new CustomUserDetails(snapshot, rbacEngine.toPermissionBits(snapshot.getPermissions()));
+    }
 
-        return new CustomUserDetails(user, roles, permissions);
+    /**
+     * 升级密码哈希（明文密码不变，仅重写为当前配置的代价）
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        CustomUserDetails userDetails = (CustomUserDetails) user;
+        boolean upgraded = userService.upgradePasswordHash(userDetails.getUserId(), userDetails.getPassword(), newPassword);
+        if (!upgraded) {
+            return user;
+        }
+        log.info("密码哈希已升级: {}", userDetails.getUsername());
+        return loadUserByUserId(userDetails.getUserId());
     }
 }
@@ -1,6 +1,7 @@
 package com.mengnankk.auth.security;
 
 import com.mengnankk.auth.constants.AuthConstants;
+import com.mengnankk.auth.util.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -33,14 +34,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String token = getTokenFromRequest(request);
             
-            if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
-                Authentication authentication = jwtTokenProvider.getAuthentication(token);
+            VerifiedToken verifiedToken = StringUtils.hasText(token) ? jwtTokenProvider.resolveToken(token) : null;
+            if (verifiedToken != null) {
+                // 已验签Token挂到请求上，供后续环节复用，避免重复解析
+                request.setAttribute(AuthConstants.VERIFIED_TOKEN_ATTRIBUTE, verifiedToken);
+                
+                Authentication authentication = jwtTokenProvider.getAuthentication(verifiedToken);
                 if (authentication != null) {
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                     
                     // 记录用户访问
-                    String username = jwtTokenProvider.getUsernameFromToken(token);
-                    log.debug("用户 {} 访问: {}", username, request.getRequestURI());
+                    log.debug("用户 {} 访问: {}", verifiedToken.getUsername(), request.getRequestURI());
                 }
             }
         } catch (Exception e) {
@@ -1,21 +1,27 @@
 package com.mengnankk.auth.security;
 
+import com.mengnankk.auth.service.RbacEngine;
+import com.mengnankk.auth.service.RoleService;
+import com.mengnankk.auth.service.TokenRevocationService;
+import com.mengnankk.auth.util.AuthorityClaims;
 import com.mengnankk.auth.util.TokenUtils;
 import com.mengnankk.auth.util.RedisKeys;
+import com.mengnankk.auth.util.VerifiedToken;
 import com.mengnankk.auth.exception.TokenExpiredException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -27,8 +33,15 @@ import java.util.concurrent.TimeUnit;
 public class JwtTokenProvider {
 
     private final TokenUtils tokenUtils;
-    private final UserDetailsService userDetailsService;
+    private final CustomUserDetailsService userDetailsService;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final RoleService roleService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RbacEngine rbacEngine;
+
+    /** 无状态认证模式：访问Token携带角色/权限快照，请求认证不再回源加载用户 */
+    @Value("${jwt.stateless-auth.enabled:false}")
+    private boolean statelessAuthEnabled;
 
     /**
      * 生成认证Token
@@ -43,9 +56,25 @@ public class JwtTokenProvider {
             userId = ((CustomUserDetails) userDetails).getUserId();
         }
         
+        if (statelessAuthEnabled && userId != null) {
+            return generateStatelessAccessToken(username, userId);
+        }
+        
         return tokenUtils.generateAccessToken(username, userId);
     }
 
+    /**
+     * 生成携带角色/权限快照的访问Token
+     * 按用户版本号 -> 角色 -> 角色代数 -> 权限的顺序读取，保证快照不会比两个版本号更旧
+     */
+    private String generateStatelessAccessToken(String username, Long userId) {
+        long authVersion = roleService.getLatestAuthVersion(userId);
+        List<String> roles = roleService.getUserRoles(userId);
+        long roleVersion = rbacEngine.getRoleGeneration(roles);
+        List<String> permissions = roleService.getUserPermissions(userId);
+        return tokenUtils.generateAccessToken(username, userId, roles, permissions, authVersion, roleVersion);
+    }
+
     /**
      * 生成刷新Token
      */
@@ -82,31 +111,61 @@ public class JwtTokenProvider {
     }
 
     /**
-     * 验证Token
+     * 解析并验证Token（验签、过期、黑名单）
+     * 验证通过返回已验签Token，供同一请求内的后续调用复用；否则返回null
      */
-    public boolean validateToken(String token) {
+    public VerifiedToken resolveToken(String token) {
         try {
-            if (!tokenUtils.validateToken(token)) {
-                return false;
+            VerifiedToken verifiedToken = tokenUtils.parseToken(token);
+            
+            // 检查Token是否在黑名单中（本地副本，通常无需访问Redis）
+            if (tokenRevocationService.isRevoked(verifiedToken.getTokenId())) {
+                return null;
             }
             
-            // 检查Token是否在黑名单中
-            String tokenId = tokenUtils.getTokenId(token);
-            String blacklistKey = RedisKeys.TOKEN_BLACKLIST + tokenId;
-            return !redisTemplate.hasKey(blacklistKey);
+            // 检查Token是否签发于用户吊销纪元之前（改密、禁用、退出所有设备等）
+            if (tokenRevocationService.isIssuedBeforeEpoch(verifiedToken.getUserId(), verifiedToken.getIssuedAt())) {
+                return null;
+            }
+            return verifiedToken;
         } catch (Exception e) {
             log.error("Token验证失败: {}", e.getMessage());
-            return false;
+            return null;
         }
     }
 
+    /**
+     * 验证Token
+     */
+    public boolean validateToken(String token) {
+        return resolveToken(token) != null;
+    }
+
     /**
      * 从Token获取认证信息
      */
     public Authentication getAuthentication(String token) {
         try {
-            String username = getUsernameFromToken(token);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            return getAuthentication(tokenUtils.parseToken(token));
+        } catch (Exception e) {
+            log.error("获取认证信息失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 从已验签Token获取认证信息
+     */
+    public Authentication getAuthentication(VerifiedToken verifiedToken) {
+        try {
+            if (statelessAuthEnabled && verifiedToken.getAuthorities() != null) {
+                return getAuthenticationFromClaims(verifiedToken);
+            }
+            
+            // 携带用户ID的Token由用户认证快照构建，一次缓存读取完成认证
+            UserDetails userDetails = verifiedToken.getUserId() != null
+                    ? userDetailsService.loadUserByToken(verifiedToken)
+                    : userDetailsService.loadUserByUsername(verifiedToken.getUsername());
             
             return new UsernamePasswordAuthenticationToken(
                     userDetails, null, userDetails.getAuthorities());
@@ -116,6 +175,34 @@ public class JwtTokenProvider {
         }
     }
 
+    /**
+     * 直接由Token内嵌的权限快照构建认证信息
+     * 仅需比对本地缓存的用户版本号与令牌中角色的权限代数，任一落后的Token视为无效，客户端需刷新Token。
+     * 本节点版本可能落后于签发节点，因此只拒绝比本地更旧的Token。
+     */
+    private Authentication getAuthenticationFromClaims(VerifiedToken verifiedToken) {
+        Long userId = verifiedToken.getUserId();
+        long currentVersion = roleService.getAuthVersion(userId);
+        if (verifiedToken.getAuthVersion() == null || verifiedToken.getAuthVersion() < currentVersion) {
+            log.debug("Token权限快照已过期: userId={}, tokenVersion={}, currentVersion={}",
+                    userId, verifiedToken.getAuthVersion(), currentVersion);
+            return null;
+        }
+        
+        AuthorityClaims authorities = verifiedToken.getAuthorities();
+        long currentRoleVersion = rbacEngine.getRoleGeneration(authorities.getRoles());
+        if (verifiedToken.getRoleVersion() == null || verifiedToken.getRoleVersion() < currentRoleVersion) {
+            log.debug("Token角色权限已变更: userId={}, tokenRoleVersion={}, currentRoleVersion={}",
+                    userId, verifiedToken.getRoleVersion(), currentRoleVersion);
+            return null;
+        }
+        CustomUserDetails userDetails = CustomUserDetails.fromClaims(
+                userId, verifiedToken.getUsername(), authorities.getRoles(), authorities.getPermissions(),
+                rbacEngine.toPermissionBits(authorities.getPermissions()));
+        return new UsernamePasswordAuthenticationToken(
+                userDetails, null, userDetails.getAuthorities());
+    }
+
     /**
      * 刷新Token
      */
@@ -125,11 +212,12 @@ public class JwtTokenProvider {
         }
         
         // 验证刷新Token
-        if (!tokenUtils.validateToken(refreshToken, "refresh")) {
+        VerifiedToken verifiedToken = resolveToken(refreshToken);
+        if (verifiedToken == null || !verifiedToken.isType("refresh")) {
             throw new TokenExpiredException("刷新Token无效或已过期");
         }
         
-        Long userId = tokenUtils.getUserIdFromToken(refreshToken);
+        Long userId = verifiedToken.getUserId();
         String redisKey = RedisKeys.REFRESH_TOKEN + userId;
         
         // 检查Redis中的刷新Token是否匹配
@@ -138,7 +226,13 @@ public class JwtTokenProvider {
             throw new TokenExpiredException("刷新Token不匹配");
         }
         
-        return tokenUtils.refreshToken(refreshToken);
+        if (statelessAuthEnabled) {
+            // 重新加载用户（会校验禁用状态），签发携带最新权限快照的Token
+            UserDetails userDetails = userDetailsService.loadUserByUsername(verifiedToken.getUsername());
+            return generateStatelessAccessToken(userDetails.getUsername(), userId);
+        }
+        
+        return tokenUtils.generateAccessToken(verifiedToken.getUsername(), userId);
     }
 
     /**
@@ -146,15 +240,21 @@ public class JwtTokenProvider {
      */
     public void revokeToken(String token) {
         try {
-            String tokenId = tokenUtils.getTokenId(token);
-            String blacklistKey = RedisKeys.TOKEN_BLACKLIST + tokenId;
+            revokeToken(tokenUtils.parseToken(token));
+        } catch (Exception e) {
+            log.error("注销Token失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 注销已验签Token（添加到黑名单）
+     */
+    public void revokeToken(VerifiedToken verifiedToken) {
+        try {
+            String tokenId = verifiedToken.getTokenId();
             
-            // Token剩余过期时间
-            long remainingTime = tokenUtils.getTokenRemainingTime(token);
-            if (remainingTime > 0) {
-                redisTemplate.opsForValue().set(blacklistKey, "revoked", 
-                        remainingTime, TimeUnit.SECONDS);
-            }
+            // 按Token剩余过期时间写入黑名单并广播
+            tokenRevocationService.revoke(tokenId, verifiedToken.getRemainingSeconds());
             
             log.info("Token已加入黑名单: {}", tokenId);
         } catch (Exception e) {
@@ -162,6 +262,14 @@ public class JwtTokenProvider {
         }
     }
 
+    /**
+     * 注销用户的所有Token（访问Token与刷新Token）
+     */
+    public void revokeAllTokens(Long userId) {
+        tokenRevocationService.revokeAllTokens(userId);
+        revokeRefreshToken(userId);
+    }
+
     /**
      * 注销刷新Token
      */
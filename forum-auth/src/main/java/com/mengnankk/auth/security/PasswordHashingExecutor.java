@@ -0,0 +1,139 @@
+package com.mengnankk.auth.security;
+
+import com.mengnankk.auth.exception.AuthException;
+import com.mengnankk.auth.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 密码哈希专用执行器
+ * BCrypt计算在固定大小的线程池中执行，等待队列有界。队列已满时直接拒绝（503 + Retry-After），
+ * 请求线程最多被"线程数 + 队列容量"个哈希任务占用，其余请求线程（如Token校验）不受登录高峰影响。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PasswordHashingExecutor {
+
+    public static final String OPERATION_ENCODE = "encode";
+    public static final String OPERATION_MATCHES = "matches";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.password.hashing.threads:0}")
+    private Integer threads;
+
+    @Value("${auth.password.hashing.queue-capacity:64}")
+    private Integer queueCapacity;
+
+    @Value("${auth.password.hashing.wait-timeout-ms:5000}")
+    private Long waitTimeoutMs;
+
+    @Value("${auth.password.hashing.retry-after-seconds:1}")
+    private Long retryAfterSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private Timer waitTimer;
+    /** 操作名称 -> 哈希耗时指标，启动时创建，避免每次调用重复查找注册表 */
+    private Map<String, Timer> hashTimers;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("auth.password.hashing.queue.size", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("auth.password.hashing.wait").register(meterRegistry);
+        this.hashTimers = Map.of(
+                OPERATION_ENCODE, hashTimer(OPERATION_ENCODE),
+                OPERATION_MATCHES, hashTimer(OPERATION_MATCHES));
+        this.rejectedCounter = Counter.builder("auth.password.hashing.rejected").register(meterRegistry);
+
+        log.info("密码哈希执行器初始化完成: threads={}, queueCapacity={}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 在哈希线程池中执行任务并等待结果
+     *
+     * @param operation 操作名称（{@link #OPERATION_ENCODE}/{@link #OPERATION_MATCHES}），用于区分耗时指标
+     */
+    public <T> T execute(String operation, Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        Timer hashTimer = hashTimers.get(operation);
+        if (hashTimer == null) {
+            throw new IllegalArgumentException("未知的密码操作: " + operation);
+        }
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return hashTimer.record(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceBusyException("服务繁忙，请稍后再试", retryAfterSeconds);
+        }
+
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceBusyException("服务繁忙，请稍后再试", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthException("密码处理被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new AuthException("密码处理失败", cause);
+        }
+    }
+
+    private Timer hashTimer(String operation) {
+        return Timer.builder("auth.password.hashing.time")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,81 @@
+package com.mengnankk.auth.security;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 权限位图
+ * 权限名由RBAC引擎统一编号，用户权限表示为位图，权限检查为一次哈希查找加一次位测试。
+ * 未被引擎收录的权限名（引擎未就绪或刚新增）保存在附加集合中，保证判断结果不丢失。
+ */
+public final class PermissionBits {
+
+    private static final PermissionBits EMPTY = new PermissionBits(Collections.emptyMap(), new BitSet(), Collections.emptySet());
+
+    /** 权限名 -> 位下标，与位图来自同一份引擎快照 */
+    private final Map<String, Integer> index;
+    private final BitSet bits;
+    private final Set<String> unindexed;
+
+    PermissionBits(Map<String, Integer> index, BitSet bits, Set<String> unindexed) {
+        this.index = index;
+        this.bits = bits;
+        this.unindexed = unindexed;
+    }
+
+    /**
+     * 基于引擎的权限编号构建位图
+     */
+    public static PermissionBits of(Collection<String> permissions, Map<String, Integer> index) {
+        if (permissions == null || permissions.isEmpty()) {
+            return EMPTY;
+        }
+
+        BitSet bits = new BitSet();
+        Set<String> unindexed = null;
+        for (String permission : permissions) {
+            Integer bit = index.get(permission);
+            if (bit != null) {
+                bits.set(bit);
+            } else {
+                if (unindexed == null) {
+                    unindexed = new HashSet<>();
+                }
+                unindexed.add(permission);
+            }
+        }
+        return new PermissionBits(index, bits, unindexed != null ? unindexed : Collections.emptySet());
+    }
+
+    /**
+     * 不依赖引擎编号构建（退化为哈希集合）
+     */
+    public static PermissionBits of(Collection<String> permissions) {
+        return of(permissions, Collections.emptyMap());
+    }
+
+    /**
+     * 由引擎直接计算出的位图构建
+     */
+    public static PermissionBits ofBits(BitSet bits, Map<String, Integer> index) {
+        return new PermissionBits(index, bits, Collections.emptySet());
+    }
+
+    /**
+     * 检查是否包含指定权限
+     */
+    public boolean contains(String permission) {
+        if (permission == null) {
+            return false;
+        }
+        Integer bit = index.get(permission);
+        if (bit != null) {
+            return bits.get(bit);
+        }
+        return unindexed.contains(permission);
+    }
+}
@@ -0,0 +1,88 @@
+package com.mengnankk.auth.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 可调整代价的BCrypt编码器
+ * 代价低于目标代价的哈希视为需要升级，登录成功后由DaoAuthenticationProvider透明重写；
+ * 代价更高的哈希保持不变，避免各节点校准结果不一致时同一密码被反复重写。
+ */
+@Slf4j
+public class TunableBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2([ayb])?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    /** BCrypt允许的代价范围 */
+    public static final int MIN_STRENGTH = 4;
+    public static final int MAX_STRENGTH = 31;
+
+    private static final String CALIBRATION_PASSWORD = "calibration-Password-123";
+
+    private final int strength;
+
+    public TunableBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        if (!matcher.matches()) {
+            return false;
+        }
+        return Integer.parseInt(matcher.group(2)) < strength;
+    }
+
+    /**
+     * 在当前硬件上校准代价：逐级测量校验耗时，取耗时不超过目标值的最大代价
+     * 每一级的测量结果都会打印，可作为各代价校验耗时的基准参考
+     *
+     * @param targetMillis 单次校验的目标耗时
+     * @param minStrength  允许的最小代价
+     * @param maxStrength  允许的最大代价
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        int selected = minStrength;
+        for (int candidate = minStrength; candidate <= maxStrength; candidate++) {
+            long verifyMillis = measureVerifyMillis(candidate);
+            log.info("BCrypt代价校准: strength={}, verify={}ms", candidate, verifyMillis);
+            if (verifyMillis > targetMillis) {
+                break;
+            }
+            selected = candidate;
+        }
+        log.info("BCrypt代价校准完成: target={}ms, selected={}", targetMillis, selected);
+        return selected;
+    }
+
+    /**
+     * 测量指定代价下单次校验的耗时（预热一次后取多次测量的中位数）
+     */
+    private static long measureVerifyMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String encoded = encoder.encode(CALIBRATION_PASSWORD);
+        encoder.matches(CALIBRATION_PASSWORD, encoded);
+
+        long[] samples = new long[3];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            encoder.matches(CALIBRATION_PASSWORD, encoded);
+            samples[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
@@ -0,0 +1,65 @@
+package com.mengnankk.auth.security;
+
+import com.mengnankk.auth.entity.User;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 用户认证快照
+ * 请求认证所需的用户核心字段、角色、权限、吊销纪元和权限版本号作为一个整体缓存，
+ * 一次读取即可完成认证，各部分不会因过期时间不同而出现新旧混杂。不包含密码哈希。
+ */
+@Data
+public class UserAuthSnapshot {
+
+    private Long userId;
+    private String username;
+    private String email;
+    private String phone;
+    private String nickname;
+    private String avatar;
+    private Integer status;
+    private Integer emailVerified;
+    private Integer phoneVerified;
+    private List<String> roles;
+    private List<String> permissions;
+    /** 用户吊销纪元(秒)，此前签发的Token无效，0表示未设置 */
+    private long tokensValidAfter;
+    /** 构建快照时的权限版本号 */
+    private long authVersion;
+
+    /**
+     * 由用户实体和角色权限构建快照
+     */
+    public static UserAuthSnapshot of(User user, List<String> roles, List<String> permissions,
+                                      long tokensValidAfter, long authVersion) {
+        UserAuthSnapshot snapshot = new UserAuthSnapshot();
+        snapshot.setUserId(user.getId());
+        snapshot.setUsername(user.getUsername());
+        snapshot.setEmail(user.getEmail());
+        snapshot.setPhone(user.getPhone());
+        snapshot.setNickname(user.getNickname());
+        snapshot.setAvatar(user.getAvatar());
+        snapshot.setStatus(user.getStatus());
+        snapshot.setEmailVerified(user.getEmailVerified());
+        snapshot.setPhoneVerified(user.getPhoneVerified());
+        snapshot.setRoles(roles);
+        snapshot.setPermissions(permissions);
+        snapshot.setTokensValidAfter(tokensValidAfter);
+        snapshot.setAuthVersion(authVersion);
+        return snapshot;
+    }
+
+    public boolean isEnabled() {
+        return Integer.valueOf(User.STATUS_ENABLED).equals(status);
+    }
+
+    public boolean isEmailVerified() {
+        return Integer.valueOf(User.EMAIL_VERIFIED).equals(emailVerified);
+    }
+
+    public boolean isPhoneVerified() {
+        return Integer.valueOf(User.PHONE_VERIFIED).equals(phoneVerified);
+    }
+}
@@ -0,0 +1,261 @@
+package com.mengnankk.auth.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步事件发布器
+ * 请求线程只把事件放入有界环形队列即返回，由后台线程批量取出发送：同一批消息在同一个通道上连续发送，
+ * 再统一等待发布确认；未确认的消息按指数退避重试。队列已满或重试耗尽时丢弃并计数，登录耗时与Broker耗时无关。
+ * 停机时未发送完的批次放回队列，由destroy()统一补发。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AsyncEventPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.events.queue-capacity:10000}")
+    private Integer queueCapacity;
+
+    @Value("${auth.events.batch-size:100}")
+    private Integer batchSize;
+
+    @Value("${auth.events.confirm-timeout-ms:5000}")
+    private Long confirmTimeoutMs;
+
+    @Value("${auth.events.max-attempts:5}")
+    private Integer maxAttempts;
+
+    @Value("${auth.events.initial-backoff-ms:200}")
+    private Long initialBackoffMs;
+
+    @Value("${auth.events.max-backoff-ms:5000}")
+    private Long maxBackoffMs;
+
+    private BlockingQueue<OutboundEvent> queue;
+
+    private Thread publisherThread;
+    private volatile boolean running;
+
+    private Timer confirmTimer;
+    private Counter publishedCounter;
+    private Counter queueFullCounter;
+    private Counter retriesExhaustedCounter;
+
+    @PostConstruct
+    public void init() {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("auth.events.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        this.confirmTimer = Timer.builder("auth.events.confirm.latency").register(meterRegistry);
+        this.publishedCounter = Counter.builder("auth.events.published").register(meterRegistry);
+        this.queueFullCounter = Counter.builder("auth.events.dropped").tag("reason", "queue_full").register(meterRegistry);
+        this.retriesExhaustedCounter = Counter.builder("auth.events.dropped").tag("reason", "retries_exhausted")
+                .register(meterRegistry);
+
+        this.running = true;
+        this.publisherThread = new Thread(this::runLoop, "auth-event-publisher");
+        this.publisherThread.setDaemon(true);
+        this.publisherThread.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        publisherThread.interrupt();
+        try {
+            publisherThread.join(confirmTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 停机前尽量发送队列中剩余的事件（不再重试）
+        List<OutboundEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            List<OutboundEvent> failed = publishBatch(remaining);
+            if (!failed.isEmpty()) {
+                retriesExhaustedCounter.increment(failed.size());
+                log.warn("停机时仍有事件未发送成功: count={}", failed.size());
+            }
+        }
+    }
+
+    /**
+     * 提交事件，不阻塞调用线程
+     *
+     * @return 是否成功入队
+     */
+    public boolean publish(String exchange, String routingKey, Object payload) {
+        boolean accepted = queue.offer(new OutboundEvent(exchange, routingKey, payload));
+        if (!accepted) {
+            queueFullCounter.increment();
+            log.warn("事件队列已满，丢弃事件: routingKey={}", routingKey);
+        }
+        return accepted;
+    }
+
+    private void runLoop() {
+        List<OutboundEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                OutboundEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                publishWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("事件发布线程异常: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 发送一批事件，未确认的部分按指数退避重试
+     */
+    private void publishWithRetry(List<OutboundEvent> batch) throws InterruptedException {
+        List<OutboundEvent> pending = batch;
+        long backoff = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            pending = publishBatch(pending);
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (!running) {
+                // 停机中不再退避重试，放回队列由destroy()补发
+                requeue(pending);
+                return;
+            }
+            if (attempt >= maxAttempts) {
+                retriesExhaustedCounter.increment(pending.size());
+                log.error("事件发送重试耗尽，丢弃: count={}, attempts={}", pending.size(), attempt);
+                return;
+            }
+            log.warn("事件未被确认，{}ms后重试: count={}, attempt={}", backoff, pending.size(), attempt);
+            try {
+                TimeUnit.MILLISECONDS.sleep(backoff);
+            } catch (InterruptedException e) {
+                requeue(pending);
+                throw e;
+            }
+            backoff = Math.min(backoff * 2, maxBackoffMs);
+        }
+    }
+
+    /**
+     * 放回队列，队列已满时丢弃并计数
+     */
+    private void requeue(List<OutboundEvent> events) {
+        int dropped = 0;
+        for (OutboundEvent event : events) {
+            if (!queue.offer(event)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            queueFullCounter.increment(dropped);
+            log.warn("事件队列已满，放回失败的事件被丢弃: count={}", dropped);
+        }
+    }
+
+    /**
+     * 连续发送一批消息后统一等待发布确认（同步调用，不经过异步队列）
+     * 发送与等待确认均在invoke范围内执行，整批消息绑定同一个通道，确认到达前通道不会归还缓存。
+     *
+     * @return 未确认（发送失败、被拒绝或超时）的事件
+     */
+    public List<OutboundEvent> publishBatch(List<OutboundEvent> batch) {
+        long start = System.nanoTime();
+        List<OutboundEvent> failed;
+        try {
+            failed = rabbitTemplate.invoke(operations -> sendAndAwait(operations, batch));
+        } catch (Exception e) {
+            // 无法获取通道时整批视为未确认，交由调用方重试
+            log.warn("事件批量发送失败: count={}, error={}", batch.size(), e.getMessage());
+            failed = new ArrayList<>(batch);
+        }
+
+        int confirmed = batch.size() - failed.size();
+        if (confirmed > 0) {
+            publishedCounter.increment(confirmed);
+        }
+        confirmTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return failed;
+    }
+
+    private List<OutboundEvent> sendAndAwait(RabbitOperations operations, List<OutboundEvent> batch) {
+        List<CorrelationData> correlations = new ArrayList<>(batch.size());
+        List<OutboundEvent> failed = new ArrayList<>();
+
+        for (OutboundEvent event : batch) {
+            CorrelationData correlation = new CorrelationData(UUID.randomUUID().toString());
+            try {
+                if (event.payload() instanceof Message message) {
+                    operations.send(event.exchange(), event.routingKey(), message, correlation);
+                } else {
+                    operations.convertAndSend(event.exchange(), event.routingKey(), event.payload(), correlation);
+                }
+                correlations.add(correlation);
+            } catch (Exception e) {
+                log.warn("事件发送失败: routingKey={}, error={}", event.routingKey(), e.getMessage());
+                correlations.add(null);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (int i = 0; i < batch.size(); i++) {
+            CorrelationData correlation = correlations.get(i);
+            if (correlation == null || !awaitConfirm(correlation, deadline)) {
+                failed.add(batch.get(i));
+            }
+        }
+        return failed;
+    }
+
+    private boolean awaitConfirm(CorrelationData correlation, long deadlineNanos) {
+        try {
+            long waitNanos = Math.max(deadlineNanos - System.nanoTime(), 0);
+            return correlation.getFuture().get(waitNanos, TimeUnit.NANOSECONDS).isAck();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 待发送事件，payload为Message时原样发送，否则经消息转换器序列化
+     */
+    public record OutboundEvent(String exchange, String routingKey, Object payload) {
+    }
+}
@@ -1,24 +1,30 @@
 package com.mengnankk.auth.service;
 
-import com.mengnankk.auth.constants.AuthConstants;
+import com.mengnankk.auth.event.AuthEvent;
+import com.mengnankk.auth.event.EmailVerifiedEvent;
+import com.mengnankk.auth.event.OAuth2LoggedInEvent;
+import com.mengnankk.auth.event.PasswordChangedEvent;
+import com.mengnankk.auth.event.PhoneVerifiedEvent;
+import com.mengnankk.auth.event.UserLoggedInEvent;
+import com.mengnankk.auth.event.UserLoggedOutEvent;
+import com.mengnankk.auth.event.UserRegisteredEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
-
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * 认证事件生产者
+ * 在事务中发送的事件写入发件箱，随事务提交保证投递；其余事件交由AsyncEventPublisher异步批量发送。
+ * 两种方式都不在请求线程上访问Broker。
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class AuthEventProducer {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final AsyncEventPublisher asyncEventPublisher;
+    private final OutboxService outboxService;
 
     private static final String AUTH_EXCHANGE = "auth.exchange";
     private static final String USER_REGISTER_ROUTING_KEY = "user.register";
@@ -33,10 +39,7 @@ public class AuthEventProducer {
      * 发送用户注册事件
      */
     public void sendRegisterEvent(Long userId, String username, String email) {
-        Map<String, Object> event = createBaseEvent(AuthConstants.Events.USER_REGISTER);
-        event.put("userId", userId);
-        event.put("username", username);
-        event.put("email", email);
+        AuthEvent event = new UserRegisteredEvent(System.currentTimeMillis(), userId, username, email);
         
         sendEvent(USER_REGISTER_ROUTING_KEY, event);
         log.info("发送用户注册事件: userId={}, username={}", userId, username);
@@ -46,10 +49,7 @@ public class AuthEventProducer {
      * 发送用户登录事件
      */
     public void sendLoginEvent(Long userId, String username, String loginType) {
-        Map<String, Object> event = createBaseEvent(AuthConstants.Events.USER_LOGIN);
-        event.put("userId", userId);
-        event.put("username", username);
-        event.put("loginType", loginType);
+        AuthEvent event = new UserLoggedInEvent(System.currentTimeMillis(), userId, username, loginType);
         
         sendEvent(USER_LOGIN_ROUTING_KEY, event);
         log.debug("发送用户登录事件: userId={}, username={}, loginType={}", userId, username, loginType);
@@ -59,9 +59,7 @@ public class AuthEventProducer {
      * 发送用户登出事件
      */
     public void sendLogoutEvent(Long userId, String username) {
-        Map<String, Object> event = createBaseEvent(AuthConstants.Events.USER_LOGOUT);
-        event.put("userId", userId);
-        event.put("username", username);
+        AuthEvent event = new UserLoggedOutEvent(System.currentTimeMillis(), userId, username);
         
         sendEvent(USER_LOGOUT_ROUTING_KEY, event);
         log.debug("发送用户登出事件: userId={}, username={}", userId, username);
@@ -71,9 +69,7 @@ public class AuthEventProducer {
      * 发送密码修改事件
      */
     public void sendPasswordChangeEvent(Long userId, String username) {
-        Map<String, Object> event = createBaseEvent(AuthConstants.Events.PASSWORD_CHANGE);
-        event.put("userId", userId);
-        event.put("username", username);
+        AuthEvent event = new PasswordChangedEvent(System.currentTimeMillis(), userId, username);
         
         sendEvent(PASSWORD_CHANGE_ROUTING_KEY, event);
         log.info("发送密码修改事件: userId={}, username={}", userId, username);
@@ -83,10 +79,7 @@ public class AuthEventProducer {
      * 发送邮箱验证事件
      */
     public void sendEmailVerifyEvent(Long userId, String username, String email) {
-        Map<String, Object> event = createBaseEvent(AuthConstants.Events.EMAIL_VERIFY);
-        event.put("userId", userId);
-        event.put("username", username);
-        event.put("email", email);
+        AuthEvent event = new EmailVerifiedEvent(System.currentTimeMillis(), userId, username, email);
         
         sendEvent(EMAIL_VERIFY_ROUTING_KEY, event);
         log.info("发送邮箱验证事件: userId={}, username={}, email={}", userId, username, email);
@@ -96,10 +89,7 @@ public class AuthEventProducer {
      * 发送手机验证事件
      */
     public void sendPhoneVerifyEvent(Long userId, String username, String phone) {
-        Map<String, Object> event = createBaseEvent(AuthConstants.Events.PHONE_VERIFY);
-        event.put("userId", userId);
-        event.put("username", username);
-        event.put("phone", phone);
+        AuthEvent event = new PhoneVerifiedEvent(System.currentTimeMillis(), userId, username, phone);
         
         sendEvent(PHONE_VERIFY_ROUTING_KEY, event);
         log.info("发送手机验证事件: userId={}, username={}, phone={}", userId, username, phone);
@@ -109,35 +99,20 @@ public class AuthEventProducer {
      * 发送OAuth2登录事件
      */
     public void sendOAuth2LoginEvent(Long userId, String username, String provider, String providerUserId) {
-        Map<String, Object> event = createBaseEvent(AuthConstants.Events.OAUTH2_LOGIN);
-        event.put("userId", userId);
-        event.put("username", username);
-        event.put("provider", provider);
-        event.put("providerUserId", providerUserId);
+        AuthEvent event = new OAuth2LoggedInEvent(System.currentTimeMillis(), userId, username, provider, providerUserId);
         
         sendEvent(OAUTH2_LOGIN_ROUTING_KEY, event);
         log.info("发送OAuth2登录事件: userId={}, username={}, provider={}", userId, username, provider);
     }
 
     /**
-     * 创建基础事件对象
-     */
-    private Map<String, Object> createBaseEvent(String eventType) {
-        Map<String, Object> event = new HashMap<>();
-        event.put("eventType", eventType);
-        event.put("timestamp", LocalDateTime.now());
-        event.put("source", "auth-service");
-        return event;
-    }
-
-    /**
-     * 发送事件到RabbitMQ
+     * 发送事件：存在事务时写入发件箱，否则提交到异步发布队列
      */
-    private void sendEvent(String routingKey, Map<String, Object> event) {
-        try {
-            rabbitTemplate.convertAndSend(AUTH_EXCHANGE, routingKey, event);
-        } catch (Exception e) {
-            log.error("发送事件失败: routingKey={}, event={}, error={}", routingKey, event, e.getMessage());
+    private void sendEvent(String routingKey, AuthEvent event) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            outboxService.append(AUTH_EXCHANGE, routingKey, event);
+        } else {
+            asyncEventPublisher.publish(AUTH_EXCHANGE, routingKey, event);
         }
     }
 }
@@ -0,0 +1,184 @@
+package com.mengnankk.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mengnankk.auth.constants.AuthConstants;
+import com.mengnankk.auth.exception.AuthException;
+import com.mengnankk.auth.util.RedisKeys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录失败跟踪服务
+ * 按用户名和IP分别计数，达到阈值后锁定。用户名查询不区分大小写，计数和锁定Key使用与UserService相同的规范化用户名，
+ * 避免以大小写变体绕过账户锁定。登录前先检查锁定状态，已锁定的账户不再进入BCrypt校验。
+ * 每次检查或记录失败都是一次Lua脚本调用（一次网络往返），已知的锁定状态在本地缓存至锁定结束。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoginAttemptService {
+
+    private static final String IP_KEY_PREFIX = "ip:";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CHECK_SCRIPT = loadScript("check.lua", List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> FAILURE_SCRIPT = loadScript("failure.lua", List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${auth.login.ip-max-fail-count:50}")
+    private Integer ipMaxFailCount;
+
+    @Value("${auth.login.locked-cache-size:10000}")
+    private Long lockedCacheSize;
+
+    @Value("${auth.login.locked-cache-seconds:10}")
+    private Long lockedCacheSeconds;
+
+    /** 已知的锁定状态：锁定Key -> 锁定截止时间(毫秒)，缓存时间较短，使解除锁定能及时生效 */
+    private Cache<String, Long> lockedUntilCache;
+
+    @PostConstruct
+    public void init() {
+        this.lockedUntilCache = Caffeine.newBuilder()
+                .maximumSize(lockedCacheSize)
+                .expireAfterWrite(lockedCacheSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 登录前检查，账户或IP已锁定时抛出异常
+     * Redis不可用时放行，不影响正常登录
+     */
+    @SuppressWarnings("unchecked")
+    public void checkNotLocked(String username, String ip) {
+        username = normalizeUsername(username);
+        String userLockKey = userLockKey(username);
+        String ipLockKey = ipLockKey(ip);
+
+        long now = System.currentTimeMillis();
+        long lockedUntil = Math.max(localLockedUntil(userLockKey), localLockedUntil(ipLockKey));
+        if (lockedUntil > now) {
+            throw lockedException(lockedUntil - now);
+        }
+
+        List<Long> reply;
+        try {
+            reply = stringRedisTemplate.execute(CHECK_SCRIPT, Arrays.asList(userLockKey, ipLockKey));
+        } catch (Exception e) {
+            log.warn("登录锁定状态检查失败，默认放行: username={}, error={}", username, e.getMessage());
+            return;
+        }
+        if (reply == null || reply.size() < 2) {
+            return;
+        }
+
+        long userRemaining = reply.get(0);
+        long ipRemaining = reply.get(1);
+        cacheLocked(userLockKey, now, userRemaining);
+        cacheLocked(ipLockKey, now, ipRemaining);
+        if (userRemaining > 0 || ipRemaining > 0) {
+            throw lockedException(Math.max(userRemaining, ipRemaining));
+        }
+    }
+
+    /**
+     * 记录一次登录失败，达到阈值时锁定账户或IP
+     *
+     * @return 账户剩余可尝试次数
+     */
+    @SuppressWarnings("unchecked")
+    public long recordFailure(String username, String ip) {
+        username = normalizeUsername(username);
+        String userLockKey = userLockKey(username);
+        String ipLockKey = ipLockKey(ip);
+
+        List<Long> reply;
+        try {
+            reply = stringRedisTemplate.execute(FAILURE_SCRIPT,
+                    Arrays.asList(RedisKeys.LOGIN_FAIL_COUNT + username, RedisKeys.LOGIN_FAIL_COUNT + IP_KEY_PREFIX + ip,
+                            userLockKey, ipLockKey),
+                    String.valueOf(AuthConstants.MAX_LOGIN_FAIL_COUNT), String.valueOf(ipMaxFailCount),
+                    String.valueOf(TimeUnit.MINUTES.toMillis(AuthConstants.ACCOUNT_LOCK_TIME)),
+                    String.valueOf(TimeUnit.MINUTES.toMillis(AuthConstants.ACCOUNT_LOCK_TIME)));
+        } catch (Exception e) {
+            log.warn("登录失败记录失败: username={}, error={}", username, e.getMessage());
+            return AuthConstants.MAX_LOGIN_FAIL_COUNT;
+        }
+
+        if (reply == null || reply.size() < 2) {
+            return AuthConstants.MAX_LOGIN_FAIL_COUNT;
+        }
+
+        long lockMillis = reply.get(1);
+        if (lockMillis > 0) {
+            log.warn("登录失败次数过多，已锁定: username={}, ip={}", username, ip);
+        }
+        return reply.get(0);
+    }
+
+    /**
+     * 登录成功后清除账户失败计数（IP计数保留，避免用一个可用账户重置IP计数）
+     */
+    public void recordSuccess(String username) {
+        username = normalizeUsername(username);
+        try {
+            stringRedisTemplate.delete(RedisKeys.LOGIN_FAIL_COUNT + username);
+        } catch (Exception e) {
+            log.warn("清除登录失败计数失败: username={}, error={}", username, e.getMessage());
+        }
+    }
+
+    private void cacheLocked(String lockKey, long now, long remainingMillis) {
+        if (remainingMillis > 0) {
+            lockedUntilCache.put(lockKey, now + remainingMillis);
+        }
+    }
+
+    private long localLockedUntil(String lockKey) {
+        Long lockedUntil = lockedUntilCache.getIfPresent(lockKey);
+        return lockedUntil != null ? lockedUntil : 0L;
+    }
+
+    private AuthException lockedException(long remainingMillis) {
+        long minutes = Math.max(TimeUnit.MILLISECONDS.toMinutes(remainingMillis), 1);
+        return new AuthException(String.format("登录失败次数过多，请%d分钟后再试", minutes));
+    }
+
+    /**
+     * 用户名规范化，与UserService查询用户时的规则一致
+     */
+    private static String normalizeUsername(String username) {
+        return username != null ? username.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    private String userLockKey(String username) {
+        return RedisKeys.ACCOUNT_LOCK + username;
+    }
+
+    private String ipLockKey(String ip) {
+        return RedisKeys.ACCOUNT_LOCK + IP_KEY_PREFIX + ip;
+    }
+
+    private static <T> RedisScript<T> loadScript(String name, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("lua/login/" + name));
+        script.setResultType(resultType);
+        return script;
+    }
+}
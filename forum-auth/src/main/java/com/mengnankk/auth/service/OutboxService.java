@@ -0,0 +1,157 @@
+package com.mengnankk.auth.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mengnankk.auth.entity.AuthEventOutbox;
+import com.mengnankk.auth.exception.AuthException;
+import com.mengnankk.auth.mapper.AuthEventOutboxMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 事件发件箱服务
+ * 事件在业务事务中以已序列化的消息形式写入发件箱表，事务提交即保证事件不丢失，请求线程不访问Broker。
+ * 中继任务批量锁定发件箱记录（SKIP LOCKED，多节点可并行），连续发送后统一等待发布确认，已确认的记录分块删除，
+ * 未确认的记录保留到下一轮重试（至少一次投递）。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final TypeReference<Map<String, Object>> HEADERS_TYPE = new TypeReference<>() {
+    };
+
+    private final AuthEventOutboxMapper outboxMapper;
+    private final RabbitTemplate rabbitTemplate;
+    private final AsyncEventPublisher asyncEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${auth.outbox.batch-size:200}")
+    private Integer batchSize;
+
+    @Value("${auth.outbox.delete-chunk-size:100}")
+    private Integer deleteChunkSize;
+
+    @Value("${auth.outbox.max-batches-per-run:50}")
+    private Integer maxBatchesPerRun;
+
+    /**
+     * 在当前事务中写入一条待发送事件
+     */
+    public void append(String exchange, String routingKey, Object payload) {
+        MessageProperties properties = new MessageProperties();
+        Message message = rabbitTemplate.getMessageConverter().toMessage(payload, properties);
+
+        AuthEventOutbox outbox = new AuthEventOutbox();
+        outbox.setExchange(exchange);
+        outbox.setRoutingKey(routingKey);
+        outbox.setPayload(message.getBody());
+        outbox.setContentType(properties.getContentType());
+        outbox.setHeaders(writeHeaders(properties.getHeaders()));
+        outbox.setCreatedTime(LocalDateTime.now());
+        outboxMapper.insert(outbox);
+    }
+
+    /**
+     * 中继：持续投递直到发件箱清空或达到单轮批次上限
+     */
+    @Scheduled(fixedDelayString = "${auth.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                Integer locked = transactionTemplate.execute(status -> relayBatch());
+                if (locked == null || locked < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("发件箱中继失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 在一个事务内锁定、发送并删除一批事件
+     *
+     * @return 本批锁定的记录数
+     */
+    private int relayBatch() {
+        List<AuthEventOutbox> rows = outboxMapper.lockBatch(batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<AsyncEventPublisher.OutboundEvent> events = new ArrayList<>(rows.size());
+        for (AuthEventOutbox row : rows) {
+            events.add(new AsyncEventPublisher.OutboundEvent(row.getExchange(), row.getRoutingKey(), toMessage(row)));
+        }
+
+        Set<AsyncEventPublisher.OutboundEvent> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        failed.addAll(asyncEventPublisher.publishBatch(events));
+
+        List<Long> confirmedIds = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            if (!failed.contains(events.get(i))) {
+                confirmedIds.add(rows.get(i).getId());
+            }
+        }
+        for (int from = 0; from < confirmedIds.size(); from += deleteChunkSize) {
+            outboxMapper.deleteBatchIds(confirmedIds.subList(from, Math.min(from + deleteChunkSize, confirmedIds.size())));
+        }
+
+        if (!failed.isEmpty()) {
+            log.warn("发件箱事件未被确认，下轮重试: count={}", failed.size());
+            // 本批存在失败，停止本轮中继，等待下一次调度
+            return 0;
+        }
+        return rows.size();
+    }
+
+    private Message toMessage(AuthEventOutbox row) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(row.getContentType());
+        properties.setDeliveryMode(MessageProperties.DEFAULT_DELIVERY_MODE);
+        properties.getHeaders().putAll(readHeaders(row.getHeaders()));
+        return new Message(row.getPayload(), properties);
+    }
+
+    private String writeHeaders(Map<String, Object> headers) {
+        if (headers == null || headers.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(headers);
+        } catch (Exception e) {
+            throw new AuthException("事件消息头序列化失败", e);
+        }
+    }
+
+    private Map<String, Object> readHeaders(String headers) {
+        if (!StringUtils.hasText(headers)) {
+            return Collections.emptyMap();
+        }
+        try {
+            return objectMapper.readValue(headers, HEADERS_TYPE);
+        } catch (Exception e) {
+            log.warn("事件消息头解析失败: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+}
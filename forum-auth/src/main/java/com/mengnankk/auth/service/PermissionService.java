@@ -24,6 +24,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PermissionService extends ServiceImpl<PermissionMapper, Permission> {
 
+    private final RbacEngine rbacEngine;
+
     /**
      * 根据权限名查询权限
      */
@@ -52,6 +54,7 @@ public class PermissionService extends ServiceImpl<PermissionMapper, Permission>
         permission.setUpdatedTime(LocalDateTime.now());
         
         this.save(permission);
+        rbacEngine.permissionChanged(permission.getId());
         log.info("权限创建成功: {}", permission.getPermissionName());
         return permission;
     }
@@ -74,6 +77,7 @@ public class PermissionService extends ServiceImpl<PermissionMapper, Permission>
         
         permission.setUpdatedTime(LocalDateTime.now());
         this.updateById(permission);
+        rbacEngine.permissionChanged(permission.getId());
         
         log.info("权限更新成功: {}", permission.getPermissionName());
         return permission;
@@ -94,6 +98,7 @@ public class PermissionService extends ServiceImpl<PermissionMapper, Permission>
         
         // 删除权限
         this.removeById(permissionId);
+        rbacEngine.permissionChanged(permissionId);
         
         log.info("权限删除成功: {}", permission.getPermissionName());
     }
@@ -114,6 +119,7 @@ public class PermissionService extends ServiceImpl<PermissionMapper, Permission>
         permission.setStatus(newStatus);
         permission.setUpdatedTime(LocalDateTime.now());
         this.updateById(permission);
+        rbacEngine.permissionChanged(permissionId);
         
         log.info("权限状态切换成功: {} -> {}", permission.getPermissionName(), 
                 newStatus == Permission.STATUS_ENABLED ? "启用" : "禁用");
@@ -143,6 +149,7 @@ public class PermissionService extends ServiceImpl<PermissionMapper, Permission>
     @Transactional(rollbackFor = Exception.class)
     public void assignPermissionToRole(Long roleId, Long permissionId) {
         baseMapper.assignPermissionToRole(roleId, permissionId);
+        rbacEngine.roleChanged(roleId);
         log.info("为角色分配权限成功: roleId={}, permissionId={}", roleId, permissionId);
     }
 
@@ -152,6 +159,7 @@ public class PermissionService extends ServiceImpl<PermissionMapper, Permission>
     @Transactional(rollbackFor = Exception.class)
     public void removePermissionFromRole(Long roleId, Long permissionId) {
         baseMapper.removePermissionFromRole(roleId, permissionId);
+        rbacEngine.roleChanged(roleId);
         log.info("移除角色权限成功: roleId={}, permissionId={}", roleId, permissionId);
     }
 
@@ -161,6 +169,7 @@ public class PermissionService extends ServiceImpl<PermissionMapper, Permission>
     @Transactional(rollbackFor = Exception.class)
     public void removeAllPermissionsFromRole(Long roleId) {
         baseMapper.removeAllPermissionsFromRole(roleId);
+        rbacEngine.roleChanged(roleId);
         log.info("移除角色所有权限成功: roleId={}", roleId);
     }
 
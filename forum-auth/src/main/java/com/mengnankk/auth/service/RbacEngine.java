@@ -0,0 +1,555 @@
+package com.mengnankk.auth.service;
+
+import com.mengnankk.auth.entity.Permission;
+import com.mengnankk.auth.entity.Role;
+import com.mengnankk.auth.entity.RolePermission;
+import com.mengnankk.auth.mapper.PermissionMapper;
+import com.mengnankk.auth.mapper.RoleMapper;
+import com.mengnankk.auth.security.PermissionBits;
+import com.mengnankk.auth.util.RedisKeys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存RBAC引擎
+ * 将角色-权限关系图全量加载到内存，权限名统一编号为连续的整数下标，每个角色的权限表示为位图。
+ * 用户的有效权限为其所有启用角色位图的并集（再与启用权限掩码求交），无需执行多表关联查询。
+ *
+ * 关系图变更时按角色/权限增量刷新，并通过Redis发布订阅通知其他节点；另有定时全量重载兜底。
+ * 引擎未就绪（启动加载失败）时调用方应回退到SQL查询。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RbacEngine {
+
+    private static final String MESSAGE_SEPARATOR = "|";
+    private static final String TYPE_ROLE = "role";
+    private static final String TYPE_PERMISSION = "permission";
+    /** 无法确定受影响角色时（引擎未就绪）记录到该字段，视为所有角色均已变更 */
+    private static final String ALL_ROLES = "*";
+
+    private static final RedisScript<Long> ROLE_GENERATION_SCRIPT = roleGenerationScript();
+
+    private final RoleMapper roleMapper;
+    private final PermissionMapper permissionMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile Snapshot snapshot;
+
+    /** 增量变更序号，用于避免全量重载覆盖重载期间发生的增量变更 */
+    private long changeSequence;
+
+    /**
+     * 全局RBAC缓存代数，角色/权限变更时递增
+     * 用户角色/权限缓存Key中携带该代数，变更后旧Key整体不可达并随TTL自然过期。
+     * 本节点只有在引擎刷新完成后才采用新代数，保证新代数下写入的缓存不会是旧数据。
+     */
+    private volatile long generation;
+
+    /**
+     * 角色权限代数：角色名 -> 该角色最近一次变更时的全局代数
+     * 无状态令牌携带其角色的最大代数，只有令牌中角色实际发生变更时才失效，其他RBAC变更不影响。
+     */
+    private final Map<String, Long> roleGenerations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this::onChangeMessage,
+                new ChannelTopic(RedisKeys.RBAC_CHANGE_CHANNEL));
+        try {
+            this.generation = loadGeneration();
+        } catch (Exception e) {
+            log.error("RBAC缓存代数加载失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 应用启动完成后加载，加载失败不影响启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * 引擎是否已完成加载
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * 获取当前RBAC缓存代数
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 获取角色集合的权限代数，即其中最近一次变更的角色在变更时的全局代数
+     */
+    public long getRoleGeneration(Collection<String> roleNames) {
+        long result = roleGenerations.getOrDefault(ALL_ROLES, 0L);
+        for (String roleName : roleNames) {
+            result = Math.max(result, roleGenerations.getOrDefault(roleName, 0L));
+        }
+        return result;
+    }
+
+    /**
+     * 获取角色ID对应的启用角色名
+     */
+    public List<String> getRoleNames(Collection<Long> roleIds) {
+        Snapshot current = snapshot;
+        List<String> names = new ArrayList<>(roleIds.size());
+        for (Long roleId : roleIds) {
+            RoleNode role = current.roles.get(roleId);
+            if (role != null && role.enabled()) {
+                names.add(role.name());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 计算角色集合的有效权限名
+     */
+    public List<String> getPermissionNames(Collection<Long> roleIds) {
+        Snapshot current = snapshot;
+        BitSet bits = current.union(roleIds);
+        List<String> names = new ArrayList<>(bits.cardinality());
+        for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+            names.add(current.permissionNames[bit]);
+        }
+        return names;
+    }
+
+    /**
+     * 计算角色集合的有效权限位图
+     */
+    public PermissionBits getPermissionBits(Collection<Long> roleIds) {
+        Snapshot current = snapshot;
+        return PermissionBits.ofBits(current.union(roleIds), current.permissionIndex);
+    }
+
+    /**
+     * 将权限名列表转换为位图
+     */
+    public PermissionBits toPermissionBits(Collection<String> permissions) {
+        Snapshot current = snapshot;
+        return current != null
+                ? PermissionBits.of(permissions, current.permissionIndex)
+                : PermissionBits.of(permissions);
+    }
+
+    /**
+     * 角色或其权限关联发生变化（事务提交后生效并广播）
+     */
+    public void roleChanged(Long roleId) {
+        afterCommit(() -> {
+            Set<String> affectedRoles = refreshRole(roleId);
+            long latest = bumpGeneration();
+            recordRoleGeneration(affectedRoles, latest, true);
+            publish(TYPE_ROLE, roleId, latest);
+        });
+    }
+
+    /**
+     * 权限发生变化（事务提交后生效并广播）
+     */
+    public void permissionChanged(Long permissionId) {
+        afterCommit(() -> {
+            Set<String> affectedRoles = refreshPermission(permissionId);
+            long latest = bumpGeneration();
+            recordRoleGeneration(affectedRoles, latest, true);
+            publish(TYPE_PERMISSION, permissionId, latest);
+        });
+    }
+
+    /**
+     * 全量重载，同时回收已删除权限占用的编号
+     */
+    @Scheduled(initialDelayString = "${auth.rbac.reload-interval-ms:300000}",
+               fixedDelayString = "${auth.rbac.reload-interval-ms:300000}")
+    public void reload() {
+        doReload();
+    }
+
+    /**
+     * 定期检查Redis中的缓存代数，兜底丢失的变更广播
+     * 发现落后时先全量重载引擎，再采用新代数
+     */
+    @Scheduled(initialDelayString = "${auth.rbac.generation-check-interval-ms:10000}",
+               fixedDelayString = "${auth.rbac.generation-check-interval-ms:10000}")
+    public void checkGeneration() {
+        try {
+            long latest = loadGeneration();
+            if (latest > generation && (snapshot == null || doReload())) {
+                advanceGeneration(latest);
+            }
+        } catch (Exception e) {
+            log.error("RBAC缓存代数检查失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean doReload() {
+        try {
+            long sequence;
+            synchronized (this) {
+                sequence = changeSequence;
+            }
+            List<Permission> permissions = permissionMapper.selectList(null);
+            List<Role> roles = roleMapper.selectList(null);
+            List<RolePermission> relations = permissionMapper.findAllRolePermissions();
+            loadRoleGenerations();
+
+            Map<String, Integer> permissionIndex = new HashMap<>();
+            Map<Long, Integer> permissionIdIndex = new HashMap<>();
+            List<String> permissionNames = new ArrayList<>(permissions.size());
+            BitSet enabledPermissions = new BitSet(permissions.size());
+            for (Permission permission : permissions) {
+                int bit = permissionNames.size();
+                permissionNames.add(permission.getPermissionName());
+                permissionIndex.put(permission.getPermissionName(), bit);
+                permissionIdIndex.put(permission.getId(), bit);
+                if (isEnabled(permission.getStatus())) {
+                    enabledPermissions.set(bit);
+                }
+            }
+
+            Map<Long, BitSet> rolePermissions = new HashMap<>();
+            for (RolePermission relation : relations) {
+                Integer bit = permissionIdIndex.get(relation.getPermissionId());
+                if (bit != null) {
+                    rolePermissions.computeIfAbsent(relation.getRoleId(), id -> new BitSet()).set(bit);
+                }
+            }
+
+            Map<Long, RoleNode> roleNodes = new HashMap<>();
+            for (Role role : roles) {
+                BitSet bits = rolePermissions.getOrDefault(role.getId(), new BitSet());
+                roleNodes.put(role.getId(), new RoleNode(role.getRoleName(), isEnabled(role.getStatus()), bits));
+            }
+
+            synchronized (this) {
+                if (snapshot != null && sequence != changeSequence) {
+                    log.debug("RBAC引擎重载期间发生增量变更，跳过本次重载");
+                    return false;
+                }
+                this.snapshot = new Snapshot(permissionIndex, permissionIdIndex,
+                        permissionNames.toArray(new String[0]), enabledPermissions, roleNodes);
+            }
+            log.info("RBAC引擎加载完成: roles={}, permissions={}", roleNodes.size(), permissionNames.size());
+            return true;
+        } catch (Exception e) {
+            log.error("RBAC引擎加载失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 增量刷新单个角色
+     *
+     * @return 受影响的角色名（含改名前的名称），引擎未就绪时返回null
+     */
+    private Set<String> refreshRole(Long roleId) {
+        if (snapshot == null) {
+            return null;
+        }
+        Role role = roleMapper.selectById(roleId);
+        List<Long> permissionIds = role != null ? permissionMapper.findRolePermissionIds(roleId) : Collections.emptyList();
+        Set<String> affectedRoles = new HashSet<>();
+        if (role != null) {
+            affectedRoles.add(role.getRoleName());
+        }
+
+        synchronized (this) {
+            Snapshot current = snapshot;
+            Map<Long, RoleNode> roles = new HashMap<>(current.roles);
+            RoleNode previous = roles.get(roleId);
+            if (previous != null) {
+                affectedRoles.add(previous.name());
+            }
+            if (role == null) {
+                roles.remove(roleId);
+            } else {
+                BitSet bits = new BitSet();
+                for (Long permissionId : permissionIds) {
+                    Integer bit = current.permissionIdIndex.get(permissionId);
+                    if (bit != null) {
+                        bits.set(bit);
+                    }
+                }
+                roles.put(roleId, new RoleNode(role.getRoleName(), isEnabled(role.getStatus()), bits));
+            }
+            this.snapshot = current.withRoles(roles);
+            changeSequence++;
+        }
+        log.debug("RBAC引擎刷新角色: roleId={}", roleId);
+        return affectedRoles;
+    }
+
+    /**
+     * 增量刷新单个权限，新权限追加编号，已删除权限仅从启用掩码中移除
+     *
+     * @return 持有该权限的角色名，引擎未就绪时返回null
+     */
+    private Set<String> refreshPermission(Long permissionId) {
+        if (snapshot == null) {
+            return null;
+        }
+        Permission permission = permissionMapper.selectById(permissionId);
+        Set<String> affectedRoles = new HashSet<>();
+
+        synchronized (this) {
+            Snapshot current = snapshot;
+            Map<String, Integer> permissionIndex = new HashMap<>(current.permissionIndex);
+            Map<Long, Integer> permissionIdIndex = new HashMap<>(current.permissionIdIndex);
+            BitSet enabledPermissions = (BitSet) current.enabledPermissions.clone();
+            String[] permissionNames = current.permissionNames;
+
+            Integer bit = permissionIdIndex.get(permissionId);
+            if (bit != null) {
+                // 新增的权限尚未关联任何角色，不影响已签发的令牌
+                for (RoleNode role : current.roles.values()) {
+                    if (role.permissions().get(bit)) {
+                        affectedRoles.add(role.name());
+                    }
+                }
+            }
+            if (permission == null) {
+                if (bit != null) {
+                    enabledPermissions.clear(bit);
+                }
+            } else {
+                if (bit == null) {
+                    bit = permissionNames.length;
+                    permissionNames = Arrays.copyOf(permissionNames, bit + 1);
+                    permissionIdIndex.put(permissionId, bit);
+                } else {
+                    permissionNames = permissionNames.clone();
+                    permissionIndex.remove(permissionNames[bit], bit);
+                }
+                permissionNames[bit] = permission.getPermissionName();
+                permissionIndex.put(permission.getPermissionName(), bit);
+                enabledPermissions.set(bit, isEnabled(permission.getStatus()));
+            }
+
+            this.snapshot = new Snapshot(permissionIndex, permissionIdIndex, permissionNames,
+                    enabledPermissions, current.roles);
+            changeSequence++;
+        }
+        log.debug("RBAC引擎刷新权限: permissionId={}", permissionId);
+        return affectedRoles;
+    }
+
+    /**
+     * 递增全局缓存代数，本节点引擎已刷新，可立即采用
+     */
+    private long bumpGeneration() {
+        try {
+            Long latest = stringRedisTemplate.opsForValue().increment(RedisKeys.RBAC_GENERATION);
+            if (latest != null) {
+                advanceGeneration(latest);
+            }
+        } catch (Exception e) {
+            log.error("RBAC缓存代数递增失败: {}", e.getMessage());
+        }
+        return generation;
+    }
+
+    private void advanceGeneration(long latest) {
+        synchronized (this) {
+            if (latest > generation) {
+                this.generation = latest;
+            }
+        }
+    }
+
+    /**
+     * 记录受影响角色的权限代数，只增不减
+     *
+     * @param affectedRoles 受影响的角色名，null表示引擎未就绪无法确定
+     * @param persist       是否写入Redis（仅发起变更的节点写入，其他节点只更新本地）
+     */
+    private void recordRoleGeneration(Set<String> affectedRoles, long latest, boolean persist) {
+        // 发起变更的节点无法确定受影响角色时按所有角色处理；接收节点未就绪时等待重载从Redis合并
+        Set<String> roleNames = affectedRoles != null ? affectedRoles
+                : persist ? Set.of(ALL_ROLES) : Set.of();
+        if (roleNames.isEmpty()) {
+            return;
+        }
+        for (String roleName : roleNames) {
+            roleGenerations.merge(roleName, latest, Math::max);
+        }
+        if (!persist) {
+            return;
+        }
+        try {
+            List<String> args = new ArrayList<>(roleNames.size() + 1);
+            args.add(String.valueOf(latest));
+            args.addAll(roleNames);
+            stringRedisTemplate.execute(ROLE_GENERATION_SCRIPT,
+                    Collections.singletonList(RedisKeys.RBAC_ROLE_GENERATIONS), args.toArray());
+        } catch (Exception e) {
+            log.error("RBAC角色代数写入失败: roles={}, error={}", roleNames, e.getMessage());
+        }
+    }
+
+    /**
+     * 从Redis合并各角色的权限代数，兜底丢失的变更广播
+     */
+    private void loadRoleGenerations() {
+        try {
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(RedisKeys.RBAC_ROLE_GENERATIONS);
+            for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+                roleGenerations.merge(entry.getKey().toString(), Long.parseLong(entry.getValue().toString()), Math::max);
+            }
+        } catch (Exception e) {
+            log.error("RBAC角色代数加载失败: {}", e.getMessage());
+        }
+    }
+
+    private long loadGeneration() {
+        String value = stringRedisTemplate.opsForValue().get(RedisKeys.RBAC_GENERATION);
+        return StringUtils.hasText(value) ? Long.parseLong(value) : 0L;
+    }
+
+    private void publish(String type, Long id, long generation) {
+        try {
+            stringRedisTemplate.convertAndSend(RedisKeys.RBAC_CHANGE_CHANNEL,
+                    type + MESSAGE_SEPARATOR + id + MESSAGE_SEPARATOR + generation);
+        } catch (Exception e) {
+            // 广播失败时其他节点依赖定时全量重载纠正
+            log.error("RBAC变更广播失败: type={}, id={}, error={}", type, id, e.getMessage());
+        }
+    }
+
+    /**
+     * 接收其他节点广播的关系图变更
+     */
+    private void onChangeMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = StringUtils.delimitedListToStringArray(body, MESSAGE_SEPARATOR);
+        try {
+            String type = parts[0];
+            Long id = Long.valueOf(parts[1]);
+            long latest = Long.parseLong(parts[2]);
+            Set<String> affectedRoles = Collections.emptySet();
+            if (TYPE_ROLE.equals(type)) {
+                affectedRoles = refreshRole(id);
+            } else if (TYPE_PERMISSION.equals(type)) {
+                affectedRoles = refreshPermission(id);
+            }
+            // 引擎刷新完成后再采用新代数，角色代数最后更新，保证携带新角色代数的令牌不会读到旧代数下的缓存
+            advanceGeneration(latest);
+            recordRoleGeneration(affectedRoles, latest, false);
+        } catch (RuntimeException e) {
+            log.warn("无法识别的RBAC变更消息: {}", body);
+        }
+    }
+
+    /**
+     * 在当前事务提交后执行，无事务时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static RedisScript<Long> roleGenerationScript() {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("lua/rbac/role_generation.lua"));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    private static boolean isEnabled(Integer status) {
+        return status != null && status == Role.STATUS_ENABLED;
+    }
+
+    /**
+     * 角色节点，权限位图创建后不再修改
+     */
+    private record RoleNode(String name, boolean enabled, BitSet permissions) {
+    }
+
+    /**
+     * 关系图不可变快照，变更时整体替换
+     */
+    private static final class Snapshot {
+
+        /** 权限名 -> 位下标 */
+        private final Map<String, Integer> permissionIndex;
+        /** 权限ID -> 位下标 */
+        private final Map<Long, Integer> permissionIdIndex;
+        /** 位下标 -> 权限名 */
+        private final String[] permissionNames;
+        /** 启用权限掩码 */
+        private final BitSet enabledPermissions;
+        private final Map<Long, RoleNode> roles;
+
+        private Snapshot(Map<String, Integer> permissionIndex, Map<Long, Integer> permissionIdIndex,
+                         String[] permissionNames, BitSet enabledPermissions, Map<Long, RoleNode> roles) {
+            this.permissionIndex = permissionIndex;
+            this.permissionIdIndex = permissionIdIndex;
+            this.permissionNames = permissionNames;
+            this.enabledPermissions = enabledPermissions;
+            this.roles = roles;
+        }
+
+        private Snapshot withRoles(Map<Long, RoleNode> roles) {
+            return new Snapshot(permissionIndex, permissionIdIndex, permissionNames, enabledPermissions, roles);
+        }
+
+        private BitSet union(Collection<Long> roleIds) {
+            BitSet bits = new BitSet(permissionNames.length);
+            for (Long roleId : roleIds) {
+                RoleNode role = roles.get(roleId);
+                if (role != null && role.enabled()) {
+                    bits.or(role.permissions());
+                }
+            }
+            bits.and(enabledPermissions);
+            return bits;
+        }
+    }
+}
@@ -4,21 +4,38 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mengnankk.auth.cache.TwoLevelCache;
+import com.mengnankk.auth.cache.TwoLevelCacheManager;
 import com.mengnankk.auth.entity.Role;
+import com.mengnankk.auth.entity.UserRole;
 import com.mengnankk.auth.mapper.RoleMapper;
 import com.mengnankk.auth.constants.AuthConstants;
 import com.mengnankk.auth.exception.AuthException;
 import com.mengnankk.auth.util.RedisKeys;
 import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 角色服务实现类
@@ -28,8 +45,35 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class RoleService extends ServiceImpl<RoleMapper, Role> {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
     private final PermissionService permissionService;
+    private final TwoLevelCacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RbacEngine rbacEngine;
+
+    @Value("${jwt.stateless-auth.version-cache-seconds:10}")
+    private Long authVersionCacheSeconds;
+
+    /** 用户权限版本号本地缓存，避免无状态认证每个请求都访问Redis */
+    private Cache<Long, Long> authVersionCache;
+
+    /** 用户角色/权限二级缓存：{RBAC缓存代数}:{userId} -> 名称列表 */
+    private TwoLevelCache<List<String>> userRolesCache;
+    private TwoLevelCache<List<String>> userPermissionsCache;
+
+    @PostConstruct
+    public void init() {
+        this.authVersionCache = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(authVersionCacheSeconds, TimeUnit.SECONDS)
+                .build();
+        this.userRolesCache = cacheManager.create("userRoles", RedisKeys.USER_ROLES, Duration.ofMinutes(30),
+                key -> loadUserRoles(parseUserId(key)),
+                keys -> loadBatch(keys, rbacEngine::getRoleNames, baseMapper::findUserRoles));
+        this.userPermissionsCache = cacheManager.create("userPermissions", RedisKeys.USER_PERMISSIONS,
+                Duration.ofMinutes(30), key -> loadUserPermissions(parseUserId(key)),
+                keys -> loadBatch(keys, rbacEngine::getPermissionNames, baseMapper::findUserPermissions));
+    }
 
     /**
      * 根据角色名查询角色
@@ -59,6 +103,7 @@ public class RoleService extends ServiceImpl<RoleMapper, Role> {
         role.setUpdatedTime(LocalDateTime.now());
         
         this.save(role);
+        rbacEngine.roleChanged(role.getId());
         log.info("角色创建成功: {}", role.getRoleName());
         return role;
     }
@@ -163,33 +208,112 @@ public class RoleService extends ServiceImpl<RoleMapper, Role> {
     /**
      * 获取用户角色列表
      */
-    @SuppressWarnings("unchecked")
     public List<String> getUserRoles(Long userId) {
-        String cacheKey = RedisKeys.USER_ROLES + userId;
-        List<String> cachedRoles = (List<String>) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedRoles != null) {
-            return cachedRoles;
-        }
-        
-        List<String> roles = baseMapper.findUserRoles(userId);
-        redisTemplate.opsForValue().set(cacheKey, roles, 30, TimeUnit.MINUTES);
-        return roles;
+        return userRolesCache.get(versionedKey(userId));
     }
 
     /**
      * 获取用户权限列表
      */
-    @SuppressWarnings("unchecked")
     public List<String> getUserPermissions(Long userId) {
-        String cacheKey = RedisKeys.USER_PERMISSIONS + userId;
-        List<String> cachedPermissions = (List<String>) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedPermissions != null) {
-            return cachedPermissions;
+        return userPermissionsCache.get(versionedKey(userId));
+    }
+
+    /**
+     * 获取用户最新角色列表（直接查询用户角色关联，不经过缓存）
+     */
+    public List<String> getLatestUserRoles(Long userId) {
+        return loadUserRoles(userId);
+    }
+
+    /**
+     * 获取用户最新权限列表（直接查询用户角色关联，不经过缓存）
+     */
+    public List<String> getLatestUserPermissions(Long userId) {
+        return loadUserPermissions(userId);
+    }
+
+    /**
+     * 生成携带RBAC缓存代数的缓存Key
+     */
+    private String versionedKey(Long userId) {
+        return rbacEngine.getGeneration() + ":" + userId;
+    }
+
+    private Long parseUserId(String versionedKey) {
+        return Long.valueOf(versionedKey.substring(versionedKey.indexOf(':') + 1));
+    }
+
+    /**
+     * 从RBAC引擎计算用户角色，引擎未就绪时回退到SQL查询
+     */
+    private List<String> loadUserRoles(Long userId) {
+        if (!rbacEngine.isReady()) {
+            return baseMapper.findUserRoles(userId);
         }
-        
-        List<String> permissions = baseMapper.findUserPermissions(userId);
-        redisTemplate.opsForValue().set(cacheKey, permissions, 30, TimeUnit.MINUTES);
-        return permissions;
+        return rbacEngine.getRoleNames(baseMapper.findUserRoleIds(userId));
+    }
+
+    /**
+     * 从RBAC引擎计算用户权限，引擎未就绪时回退到SQL查询
+     */
+    private List<String> loadUserPermissions(Long userId) {
+        if (!rbacEngine.isReady()) {
+            return baseMapper.findUserPermissions(userId);
+        }
+        return rbacEngine.getPermissionNames(baseMapper.findUserRoleIds(userId));
+    }
+
+    /**
+     * 批量获取用户角色列表
+     */
+    public Map<Long, List<String>> getUserRolesBatch(Collection<Long> userIds) {
+        return getBatch(userRolesCache, userIds);
+    }
+
+    /**
+     * 批量获取用户权限列表
+     */
+    public Map<Long, List<String>> getUserPermissionsBatch(Collection<Long> userIds) {
+        return getBatch(userPermissionsCache, userIds);
+    }
+
+    private Map<Long, List<String>> getBatch(TwoLevelCache<List<String>> cache, Collection<Long> userIds) {
+        Map<String, Long> userIdByKey = new HashMap<>(userIds.size() * 2);
+        for (Long userId : userIds) {
+            userIdByKey.put(versionedKey(userId), userId);
+        }
+
+        Map<String, List<String>> cached = cache.getAll(userIdByKey.keySet());
+        Map<Long, List<String>> result = new HashMap<>(cached.size() * 2);
+        cached.forEach((key, names) -> result.put(userIdByKey.get(key), names));
+        return result;
+    }
+
+    /**
+     * 批量回源：一次查询用户角色关联后由RBAC引擎计算，引擎未就绪时逐个回退到SQL查询
+     */
+    private Map<String, List<String>> loadBatch(Collection<String> keys,
+                                                Function<Collection<Long>, List<String>> engineResolver,
+                                                Function<Long, List<String>> sqlLoader) {
+        Map<String, List<String>> result = new HashMap<>(keys.size() * 2);
+        if (!rbacEngine.isReady()) {
+            for (String key : keys) {
+                result.put(key, sqlLoader.apply(parseUserId(key)));
+            }
+            return result;
+        }
+
+        Map<String, Long> userIdByKey = new HashMap<>(keys.size() * 2);
+        for (String key : keys) {
+            userIdByKey.put(key, parseUserId(key));
+        }
+        Map<Long, List<Long>> roleIdsByUser = baseMapper.findUserRoleRelations(userIdByKey.values()).stream()
+                .collect(Collectors.groupingBy(UserRole::getUserId,
+                        Collectors.mapping(UserRole::getRoleId, Collectors.toList())));
+        userIdByKey.forEach((key, userId) ->
+                result.put(key, engineResolver.apply(roleIdsByUser.getOrDefault(userId, Collections.emptyList()))));
+        return result;
     }
 
     /**
@@ -230,23 +354,79 @@ public class RoleService extends ServiceImpl<RoleMapper, Role> {
         return baseMapper.findRolePermissions(roleId);
     }
 
+    /**
+     * 获取用户权限版本号（优先本地缓存）
+     * 仅随用户自身的角色分配/状态变化递增；角色定义的变化由RBAC引擎的角色代数单独跟踪，
+     * 全局缓存代数只用于缓存Key，不参与令牌版本比较
+     */
+    public long getAuthVersion(Long userId) {
+        return authVersionCache.get(userId, this::loadAuthVersion);
+    }
+
+    /**
+     * 获取用户最新权限版本号（直接读取Redis并刷新本地缓存）
+     */
+    public long getLatestAuthVersion(Long userId) {
+        long version = loadAuthVersion(userId);
+        authVersionCache.put(userId, version);
+        return version;
+    }
+
+    /**
+     * 递增用户权限版本号，使携带旧权限快照的Token失效
+     */
+    public void bumpAuthVersion(Long userId) {
+        Long version = stringRedisTemplate.opsForValue().increment(RedisKeys.USER_AUTH_VERSION + userId);
+        if (version != null) {
+            authVersionCache.put(userId, version);
+        } else {
+            authVersionCache.invalidate(userId);
+        }
+    }
+
+    private long loadAuthVersion(Long userId) {
+        String version = stringRedisTemplate.opsForValue().get(RedisKeys.USER_AUTH_VERSION + userId);
+        return StringUtils.hasText(version) ? Long.parseLong(version) : 0L;
+    }
+
     /**
      * 清除角色相关缓存
      */
     private void clearRoleRelatedCache(Long roleId) {
-        // 这里可以实现更复杂的缓存清理逻辑
-        // 比如清理所有拥有该角色的用户的权限缓存
+        // 刷新RBAC引擎并递增全局缓存代数，所有用户的角色/权限缓存Key随之切换，
+        // 无需扫描拥有该角色的用户，旧Key随TTL自然过期
+        rbacEngine.roleChanged(roleId);
     }
 
     /**
-     * 清除用户相关缓存
+     * 清除用户相关缓存（事务提交后执行，避免并发读取把提交前的角色重新写回缓存）
      */
     private void clearUserRelatedCache(Long userId) {
-        String rolesCacheKey = RedisKeys.USER_ROLES + userId;
-        String permissionsCacheKey = RedisKeys.USER_PERMISSIONS + userId;
-        
-        redisTemplate.delete(rolesCacheKey);
-        redisTemplate.delete(permissionsCacheKey);
+        afterCommit(() -> {
+            String cacheKey = versionedKey(userId);
+            userRolesCache.evict(cacheKey);
+            userPermissionsCache.evict(cacheKey);
+            eventPublisher.publishEvent(new UserAuthChangedEvent(userId));
+
+            // 角色变化后强制重新签发携带权限快照的Token
+            bumpAuthVersion(userId);
+        });
+    }
+
+    /**
+     * 在当前事务提交后执行，无事务时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
     /**
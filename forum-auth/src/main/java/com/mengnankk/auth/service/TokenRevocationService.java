@@ -0,0 +1,298 @@
+package com.mengnankk.auth.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mengnankk.auth.util.BloomFilter;
+import com.mengnankk.auth.util.RedisKeys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.RedisCallback;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token吊销服务
+ * 每个节点在内存中维护一份已吊销Token ID的副本，前置布隆过滤器，
+ * 绝大多数"未吊销"的判断无需离开JVM。副本通过Redis发布订阅实时同步，
+ * 启动时全量加载并定期与Redis对账，以覆盖节点重启和消息丢失的情况。
+ * 
+ * 另外为每个用户维护一个"Token生效起点"（吊销纪元），签发时间早于该纪元的Token一律无效，
+ * 修改密码、禁用、删除用户以及"退出所有设备"只需一次O(1)写入。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    private static final String MESSAGE_SEPARATOR = "|";
+    private static final int SCAN_BATCH_SIZE = 1000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${auth.revocation.bloom-expected-insertions:100000}")
+    private Long bloomExpectedInsertions;
+
+    @Value("${auth.revocation.bloom-false-positive-rate:0.001}")
+    private Double bloomFalsePositiveRate;
+
+    @Value("${auth.revocation.epoch-cache-seconds:30}")
+    private Long epochCacheSeconds;
+
+    @Value("${jwt.refresh-expiration:604800}")
+    private Long refreshExpiration;
+
+    /** 用户吊销纪元本地缓存：userId -> 纪元(秒)，0表示未设置 */
+    private Cache<Long, Long> userEpochCache;
+
+    /** 已吊销Token ID -> 过期时间戳(毫秒) */
+    private volatile Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloomFilter;
+
+    /** 本地副本是否已完成首次加载，未完成前回退到Redis查询 */
+    private volatile boolean replicaReady = false;
+
+    private final Object replicaLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        this.bloomFilter = BloomFilter.create(bloomExpectedInsertions, bloomFalsePositiveRate);
+        this.userEpochCache = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(epochCacheSeconds, TimeUnit.SECONDS)
+                .build();
+        redisMessageListenerContainer.addMessageListener(this::onRevocationMessage,
+                new ChannelTopic(RedisKeys.TOKEN_REVOCATION_CHANNEL));
+        redisMessageListenerContainer.addMessageListener(this::onEpochMessage,
+                new ChannelTopic(RedisKeys.USER_TOKEN_EPOCH_CHANNEL));
+        reconcile();
+    }
+
+    /**
+     * 判断Token是否已被吊销
+     */
+    public boolean isRevoked(String tokenId) {
+        if (!replicaReady) {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(RedisKeys.TOKEN_BLACKLIST + tokenId));
+        }
+
+        // 布隆过滤器判定不存在，则一定未吊销
+        if (!bloomFilter.mightContain(tokenId)) {
+            return false;
+        }
+
+        Long expireAt = revokedTokens.get(tokenId);
+        if (expireAt == null) {
+            return false;
+        }
+        if (expireAt <= System.currentTimeMillis()) {
+            revokedTokens.remove(tokenId, expireAt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 吊销Token：写入Redis黑名单，更新本地副本并广播给其他节点
+     */
+    public void revoke(String tokenId, long remainingSeconds) {
+        if (remainingSeconds <= 0) {
+            return;
+        }
+
+        long expireAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(remainingSeconds);
+        stringRedisTemplate.opsForValue().set(RedisKeys.TOKEN_BLACKLIST + tokenId, "revoked",
+                remainingSeconds, TimeUnit.SECONDS);
+        addLocal(tokenId, expireAt);
+        stringRedisTemplate.convertAndSend(RedisKeys.TOKEN_REVOCATION_CHANNEL, tokenId + MESSAGE_SEPARATOR + expireAt);
+    }
+
+    /**
+     * 判断Token是否签发于用户吊销纪元之前
+     */
+    public boolean isIssuedBeforeEpoch(Long userId, Date issuedAt) {
+        if (userId == null || issuedAt == null) {
+            return false;
+        }
+        long epochSeconds = getUserEpoch(userId);
+        return epochSeconds > 0 && TimeUnit.MILLISECONDS.toSeconds(issuedAt.getTime()) < epochSeconds;
+    }
+
+    /**
+     * 获取用户吊销纪元（秒），优先本地缓存
+     */
+    public long getUserEpoch(Long userId) {
+        return userEpochCache.get(userId, this::loadUserEpoch);
+    }
+
+    /**
+     * 获取用户最新吊销纪元（秒），直接读取Redis并刷新本地缓存
+     */
+    public long getLatestUserEpoch(Long userId) {
+        long epochSeconds = loadUserEpoch(userId);
+        return userEpochCache.asMap().merge(userId, epochSeconds, Math::max);
+    }
+
+    /**
+     * 吊销用户此前签发的所有Token
+     */
+    public void revokeAllTokens(Long userId) {
+        long epochSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        // 纪元只需保留到此前签发的Token全部自然过期
+        stringRedisTemplate.opsForValue().set(RedisKeys.USER_TOKEN_EPOCH + userId, String.valueOf(epochSeconds),
+                refreshExpiration, TimeUnit.SECONDS);
+        userEpochCache.put(userId, epochSeconds);
+        stringRedisTemplate.convertAndSend(RedisKeys.USER_TOKEN_EPOCH_CHANNEL, userId + MESSAGE_SEPARATOR + epochSeconds);
+        eventPublisher.publishEvent(new UserAuthChangedEvent(userId));
+        log.info("用户Token已全部吊销: userId={}, epoch={}", userId, epochSeconds);
+    }
+
+    private long loadUserEpoch(Long userId) {
+        String epoch = stringRedisTemplate.opsForValue().get(RedisKeys.USER_TOKEN_EPOCH + userId);
+        return StringUtils.hasText(epoch) ? Long.parseLong(epoch) : 0L;
+    }
+
+    /**
+     * 接收其他节点广播的用户吊销纪元
+     */
+    private void onEpochMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separatorIndex = body.indexOf(MESSAGE_SEPARATOR);
+        try {
+            Long userId = Long.valueOf(body.substring(0, separatorIndex));
+            long epochSeconds = Long.parseLong(body.substring(separatorIndex + 1));
+            userEpochCache.asMap().merge(userId, epochSeconds, Math::max);
+        } catch (RuntimeException e) {
+            log.warn("无法识别的用户吊销纪元消息: {}", body);
+        }
+    }
+
+    /**
+     * 接收其他节点广播的吊销消息
+     */
+    private void onRevocationMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separatorIndex = body.lastIndexOf(MESSAGE_SEPARATOR);
+        if (separatorIndex <= 0) {
+            log.warn("无法识别的Token吊销消息: {}", body);
+            return;
+        }
+
+        try {
+            String tokenId = body.substring(0, separatorIndex);
+            long expireAt = Long.parseLong(body.substring(separatorIndex + 1));
+            addLocal(tokenId, expireAt);
+        } catch (NumberFormatException e) {
+            log.warn("无法识别的Token吊销消息: {}", body);
+        }
+    }
+
+    /**
+     * 定期与Redis黑名单对账，重建本地副本和布隆过滤器
+     * 同时清理已过期的条目，避免布隆过滤器持续膨胀
+     */
+    @Scheduled(initialDelayString = "${auth.revocation.reconcile-interval-ms:60000}",
+               fixedDelayString = "${auth.revocation.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            Map<String, Long> scanned = scanBlacklist();
+
+            synchronized (replicaLock) {
+                // 合并对账期间本地新增的条目（SCAN不保证返回扫描过程中新写入的Key）
+                long now = System.currentTimeMillis();
+                revokedTokens.forEach((tokenId, expireAt) -> {
+                    if (expireAt > now) {
+                        scanned.putIfAbsent(tokenId, expireAt);
+                    }
+                });
+
+                BloomFilter rebuilt = BloomFilter.create(
+                        Math.max(bloomExpectedInsertions, scanned.size() * 2L), bloomFalsePositiveRate);
+                scanned.keySet().forEach(rebuilt::put);
+
+                this.revokedTokens = new ConcurrentHashMap<>(scanned);
+                this.bloomFilter = rebuilt;
+                this.replicaReady = true;
+            }
+
+            log.debug("Token黑名单对账完成: size={}", scanned.size());
+        } catch (Exception e) {
+            log.error("Token黑名单对账失败: {}", e.getMessage());
+        }
+    }
+
+    private void addLocal(String tokenId, long expireAt) {
+        synchronized (replicaLock) {
+            revokedTokens.merge(tokenId, expireAt, Math::max);
+            bloomFilter.put(tokenId);
+        }
+    }
+
+    /**
+     * 扫描Redis中的黑名单Key及其剩余过期时间
+     */
+    private Map<String, Long> scanBlacklist() {
+        Map<String, Long> result = new HashMap<>();
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(RedisKeys.TOKEN_BLACKLIST + "*")
+                .count(SCAN_BATCH_SIZE)
+                .build();
+
+        List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    loadExpireTimes(batch, result);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            loadExpireTimes(batch, result);
+        }
+        return result;
+    }
+
+    private void loadExpireTimes(List<String> keys, Map<String, Long> result) {
+        List<Object> ttls = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.keyCommands().pTtl(key.getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+
+        long now = System.currentTimeMillis();
+        int prefixLength = RedisKeys.TOKEN_BLACKLIST.length();
+        for (int i = 0; i < keys.size(); i++) {
+            Long ttl = (Long) ttls.get(i);
+            if (ttl == null || ttl == -2) {
+                // Key已过期
+                continue;
+            }
+            long expireAt = ttl == -1 ? Long.MAX_VALUE : now + ttl;
+            result.put(keys.get(i).substring(prefixLength), expireAt);
+        }
+    }
+}
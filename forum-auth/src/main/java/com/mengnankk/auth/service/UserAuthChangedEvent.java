@@ -0,0 +1,7 @@
+package com.mengnankk.auth.service;
+
+/**
+ * 用户认证数据变更事件（用户资料、角色权限、吊销纪元），用于失效用户认证快照
+ */
+public record UserAuthChangedEvent(Long userId) {
+}
@@ -0,0 +1,86 @@
+package com.mengnankk.auth.service;
+
+import com.mengnankk.auth.cache.TwoLevelCache;
+import com.mengnankk.auth.cache.TwoLevelCacheManager;
+import com.mengnankk.auth.entity.User;
+import com.mengnankk.auth.security.UserAuthSnapshot;
+import com.mengnankk.auth.util.RedisKeys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 用户认证快照服务
+ * 快照以单个值缓存在二级缓存中（Key携带RBAC缓存代数），请求认证时L1命中无需访问Redis，
+ * L1未命中也只需一次Redis往返。用户资料、角色、吊销纪元变化时通过UserAuthChangedEvent整体失效（事务提交后发布），
+ * 角色权限定义变化时随缓存代数切换Key。
+ * 快照写入共享的Redis，回源时直接读取数据库和Redis，不使用本节点可能尚未失效的L1缓存。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserAuthSnapshotService {
+
+    private final UserService userService;
+    private final RoleService roleService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RbacEngine rbacEngine;
+    private final TwoLevelCacheManager cacheManager;
+
+    @Value("${auth.cache.negative-ttl-seconds:60}")
+    private Long negativeTtlSeconds;
+
+    /** 用户认证快照二级缓存：generation:userId -> UserAuthSnapshot，缓存不存在结果 */
+    private TwoLevelCache<UserAuthSnapshot> snapshotCache;
+
+    @PostConstruct
+    public void init() {
+        this.snapshotCache = cacheManager.create("userAuthSnapshot", RedisKeys.USER_AUTH_SNAPSHOT,
+                Duration.ofMinutes(30), Duration.ofSeconds(negativeTtlSeconds), this::loadSnapshot, null);
+    }
+
+    /**
+     * 获取用户认证快照，用户不存在（或已删除）时返回null
+     */
+    public UserAuthSnapshot getSnapshot(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        return snapshotCache.get(snapshotKey(userId));
+    }
+
+    /**
+     * 用户认证数据变更时失效快照
+     */
+    @EventListener
+    public void onUserAuthChanged(UserAuthChangedEvent event) {
+        snapshotCache.evict(snapshotKey(event.userId()));
+    }
+
+    private String snapshotKey(Long userId) {
+        return rbacEngine.getGeneration() + ":" + userId;
+    }
+
+    /**
+     * 回源构建快照：先读版本号再读角色权限，保证快照内容不会比版本号更旧
+     */
+    private UserAuthSnapshot loadSnapshot(String key) {
+        Long userId = Long.valueOf(key.substring(key.indexOf(':') + 1));
+        User user = userService.getById(userId);
+        if (user == null) {
+            return null;
+        }
+
+        long authVersion = roleService.getLatestAuthVersion(userId);
+        List<String> roles = roleService.getLatestUserRoles(userId);
+        List<String> permissions = roleService.getLatestUserPermissions(userId);
+        long tokensValidAfter = tokenRevocationService.getLatestUserEpoch(userId);
+        return UserAuthSnapshot.of(user, roles, permissions, tokensValidAfter, authVersion);
+    }
+}
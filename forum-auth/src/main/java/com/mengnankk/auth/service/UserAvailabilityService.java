@@ -0,0 +1,193 @@
+package com.mengnankk.auth.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.mengnankk.auth.entity.User;
+import com.mengnankk.auth.mapper.UserMapper;
+import com.mengnankk.auth.util.BloomFilter;
+import com.mengnankk.auth.util.RedisKeys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 用户名/邮箱可用性服务
+ * 每个节点在内存中维护用户名和邮箱的布隆过滤器，启动时从用户表分页加载，注册时写入并通过Redis广播给其他节点，
+ * 并定期全量重建以覆盖丢失的广播和容量增长。布隆过滤器判定不存在即"一定可用"，无需访问数据库；
+ * 判定可能存在时再查询数据库确认。该结果仅用于注册表单提示，注册时仍以数据库唯一约束为准。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserAvailabilityService {
+
+    private static final String TYPE_USERNAME = "username";
+    private static final String TYPE_EMAIL = "email";
+    private static final String MESSAGE_SEPARATOR = "|";
+
+    private final UserMapper userMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${auth.availability.bloom-expected-insertions:1000000}")
+    private Long bloomExpectedInsertions;
+
+    @Value("${auth.availability.bloom-false-positive-rate:0.01}")
+    private Double bloomFalsePositiveRate;
+
+    @Value("${auth.availability.load-page-size:5000}")
+    private Integer loadPageSize;
+
+    private volatile BloomFilter usernameFilter;
+    private volatile BloomFilter emailFilter;
+
+    /** 重建中的过滤器，重建期间的新注册同时写入，避免切换时丢失 */
+    private volatile BloomFilter rebuildingUsernameFilter;
+    private volatile BloomFilter rebuildingEmailFilter;
+
+    /** 首次加载完成前所有判断回退到数据库 */
+    private volatile boolean ready = false;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this::onRegisteredMessage,
+                new ChannelTopic(RedisKeys.USER_REGISTERED_CHANNEL));
+    }
+
+    /**
+     * 应用启动后加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 定期全量重建
+     */
+    @Scheduled(fixedDelayString = "${auth.availability.rebuild-interval-ms:3600000}",
+            initialDelayString = "${auth.availability.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        try {
+            BloomFilter usernames = BloomFilter.create(bloomExpectedInsertions, bloomFalsePositiveRate);
+            BloomFilter emails = BloomFilter.create(bloomExpectedInsertions, bloomFalsePositiveRate);
+            this.rebuildingUsernameFilter = usernames;
+            this.rebuildingEmailFilter = emails;
+            long lastId = 0;
+            long loaded = 0;
+            while (true) {
+                List<User> page = userMapper.selectList(new QueryWrapper<User>()
+                        .select("id", "username", "email")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("LIMIT " + loadPageSize));
+                for (User user : page) {
+                    putIfPresent(usernames, user.getUsername());
+                    putIfPresent(emails, user.getEmail());
+                    lastId = user.getId();
+                }
+                loaded += page.size();
+                if (page.size() < loadPageSize) {
+                    break;
+                }
+            }
+            this.usernameFilter = usernames;
+            this.emailFilter = emails;
+            this.ready = true;
+            log.info("用户名/邮箱布隆过滤器加载完成: users={}", loaded);
+        } catch (Exception e) {
+            log.error("用户名/邮箱布隆过滤器加载失败: {}", e.getMessage());
+        } finally {
+            this.rebuildingUsernameFilter = null;
+            this.rebuildingEmailFilter = null;
+        }
+    }
+
+    /**
+     * 用户名是否可用
+     */
+    public boolean isUsernameAvailable(String username) {
+        BloomFilter filter = this.usernameFilter;
+        if (ready && !filter.mightContain(normalize(username))) {
+            return true;
+        }
+        return !exists(TYPE_USERNAME, username);
+    }
+
+    /**
+     * 邮箱是否可用
+     */
+    public boolean isEmailAvailable(String email) {
+        BloomFilter filter = this.emailFilter;
+        if (ready && !filter.mightContain(normalize(email))) {
+            return true;
+        }
+        return !exists(TYPE_EMAIL, email);
+    }
+
+    /**
+     * 记录新注册（或修改）的用户名和邮箱，并广播给其他节点
+     */
+    public void recordTaken(String username, String email) {
+        putLocal(username, email);
+        try {
+            stringRedisTemplate.convertAndSend(RedisKeys.USER_REGISTERED_CHANNEL,
+                    nullToEmpty(username) + MESSAGE_SEPARATOR + nullToEmpty(email));
+        } catch (Exception e) {
+            log.warn("用户注册广播失败，等待定期重建: {}", e.getMessage());
+        }
+    }
+
+    private void onRegisteredMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(MESSAGE_SEPARATOR);
+        if (separator < 0) {
+            return;
+        }
+        putLocal(body.substring(0, separator), body.substring(separator + 1));
+    }
+
+    private void putLocal(String username, String email) {
+        putIfPresent(usernameFilter, username);
+        putIfPresent(emailFilter, email);
+        putIfPresent(rebuildingUsernameFilter, username);
+        putIfPresent(rebuildingEmailFilter, email);
+    }
+
+    private boolean exists(String column, String value) {
+        if (!StringUtils.hasText(value)) {
+            return false;
+        }
+        return userMapper.exists(new QueryWrapper<User>().eq(column, value));
+    }
+
+    private static void putIfPresent(BloomFilter filter, String value) {
+        if (filter != null && StringUtils.hasText(value)) {
+            filter.put(normalize(value));
+        }
+    }
+
+    /**
+     * 数据库排序规则不区分大小写，统一转为小写，避免把已占用的值误判为可用
+     */
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -1,24 +1,43 @@
 package com.mengnankk.auth.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.mengnankk.auth.cache.TwoLevelCache;
+import com.mengnankk.auth.cache.TwoLevelCacheManager;
 import com.mengnankk.auth.entity.User;
 import com.mengnankk.auth.mapper.UserMapper;
-import com.mengnankk.auth.util.EncryptUtils;
 import com.mengnankk.auth.util.RedisKeys;
 import com.mengnankk.auth.exception.AuthException;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 用户服务实现类
@@ -30,33 +49,56 @@ public class UserService extends ServiceImpl<UserMapper, User> {
 
     private final RedisTemplate<String, Object> redisTemplate;
     private final RoleService roleService;
+    private final TokenRevocationService tokenRevocationService;
+    private final TwoLevelCacheManager cacheManager;
+    private final PasswordEncoder passwordEncoder;
+    private final AuthEventProducer authEventProducer;
+    private final UserAvailabilityService userAvailabilityService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${auth.internal.batch-max-size:200}")
+    private Integer batchMaxSize;
+
+    @Value("${auth.cache.negative-ttl-seconds:60}")
+    private Long negativeTtlSeconds;
+
+    /** 用户信息二级缓存：username(小写) -> User，缓存不存在结果 */
+    private TwoLevelCache<User> userInfoCache;
+
+    /** 用户信息二级缓存：email(小写) -> User，缓存不存在结果 */
+    private TwoLevelCache<User> userByEmailCache;
+
+    /** 用户信息二级缓存：phone -> User，缓存不存在结果 */
+    private TwoLevelCache<User> userByPhoneCache;
+
+    /** 用户信息二级缓存：userId -> User */
+    private TwoLevelCache<User> userByIdCache;
+
+    @PostConstruct
+    public void init() {
+        Duration negativeTtl = Duration.ofSeconds(negativeTtlSeconds);
+        this.userInfoCache = cacheManager.create("userInfo", RedisKeys.USER_INFO, Duration.ofMinutes(30), negativeTtl,
+                username -> this.getOne(new QueryWrapper<User>().eq("username", username)), null);
+        this.userByEmailCache = cacheManager.create("userByEmail", RedisKeys.USER_INFO_BY_EMAIL, Duration.ofMinutes(30),
+                negativeTtl, email -> this.getOne(new QueryWrapper<User>().eq("email", email)), null);
+        this.userByPhoneCache = cacheManager.create("userByPhone", RedisKeys.USER_INFO_BY_PHONE, Duration.ofMinutes(30),
+                negativeTtl, phone -> this.getOne(new QueryWrapper<User>().eq("phone", phone)), null);
+        this.userByIdCache = cacheManager.create("userById", RedisKeys.USER_INFO_BY_ID, Duration.ofMinutes(30),
+                id -> this.getById(Long.valueOf(id)),
+                ids -> this.listByIds(ids.stream().map(Long::valueOf).toList()).stream()
+                        .collect(Collectors.toMap(user -> String.valueOf(user.getId()), Function.identity())));
+    }
 
     /**
      * 根据用户名查询用户
+     * 结果用于认证，不以节点本地的布隆过滤器（可能滞后）作判断；不存在的结果由负缓存短暂缓存
      */
     public User findByUsername(String username) {
         if (!StringUtils.hasText(username)) {
             return null;
         }
         
-        // 先从缓存查询
-        String cacheKey = RedisKeys.USER_INFO + username;
-        User cachedUser = (User) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedUser != null) {
-            return cachedUser;
-        }
-        
-        // 从数据库查询
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("username", username);
-        User user = this.getOne(queryWrapper);
-        
-        // 缓存用户信息
-        if (user != null) {
-            redisTemplate.opsForValue().set(cacheKey, user, 30, TimeUnit.MINUTES);
-        }
-        
-        return user;
+        return userInfoCache.get(normalizeKey(username));
     }
 
     /**
@@ -67,9 +109,7 @@ public class UserService extends ServiceImpl<UserMapper, User> {
             return null;
         }
         
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("email", email);
-        return this.getOne(queryWrapper);
+        return userByEmailCache.get(normalizeKey(email));
     }
 
     /**
@@ -80,9 +120,15 @@ public class UserService extends ServiceImpl<UserMapper, User> {
             return null;
         }
         
-        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("phone", phone);
-        return this.getOne(queryWrapper);
+        return userByPhoneCache.get(phone.trim());
+    }
+
+    /**
+     * 读取用户密码哈希（不经过缓存，缓存中的用户不含密码）
+     */
+    public String getPasswordHash(Long userId) {
+        User user = this.getOne(new QueryWrapper<User>().select("id", "password").eq("id", userId));
+        return user != null ? user.getPassword() : null;
     }
 
     /**
@@ -90,23 +136,11 @@ public class UserService extends ServiceImpl<UserMapper, User> {
      */
     @Transactional(rollbackFor = Exception.class)
     public User register(User user, String plainPassword) {
-        // 检查用户名是否已存在
-        if (findByUsername(user.getUsername()) != null) {
-            throw new AuthException("用户名已存在");
-        }
-        
-        // 检查邮箱是否已存在
-        if (StringUtils.hasText(user.getEmail()) && findByEmail(user.getEmail()) != null) {
-            throw new AuthException("邮箱已被注册");
-        }
-        
-        // 检查手机号是否已存在
-        if (StringUtils.hasText(user.getPhone()) && findByPhone(user.getPhone()) != null) {
-            throw new AuthException("手机号已被注册");
-        }
+        // 一次查询检查用户名、邮箱、手机号是否已被占用
+        checkUnique(user);
         
         // 密码加密
-        user.setPassword(EncryptUtils.encryptPassword(plainPassword));
+        user.setPassword(passwordEncoder.encode(plainPassword));
         
         // 设置默认值
         user.setStatus(User.STATUS_ENABLED);
@@ -115,16 +149,54 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         user.setCreatedTime(LocalDateTime.now());
         user.setUpdatedTime(LocalDateTime.now());
         
-        // 保存用户
-        this.save(user);
+        // 保存用户，并发注册时以数据库唯一约束兜底
+        try {
+            this.save(user);
+        } catch (DuplicateKeyException e) {
+            log.warn("注册唯一约束冲突: username={}", user.getUsername());
+            throw new AuthException("用户名、邮箱或手机号已被注册");
+        }
         
         // 分配默认角色
         roleService.assignDefaultRole(user.getId());
         
+        // 注册事件与用户数据在同一事务中写入发件箱
+        authEventProducer.sendRegisterEvent(user.getId(), user.getUsername(), user.getEmail());
+        
+        // 更新用户名/邮箱可用性过滤器
+        userAvailabilityService.recordTaken(user.getUsername(), user.getEmail());
+        
+        // 清除查询期间可能写入的负缓存
+        evictUserCache(user);
+        
         log.info("用户注册成功: {}", user.getUsername());
         return user;
     }
 
+    /**
+     * 检查用户名、邮箱、手机号的唯一性（单次查询）
+     */
+    private void checkUnique(User user) {
+        List<User> conflicts = baseMapper.findConflicts(user.getUsername(), user.getEmail(), user.getPhone());
+        for (User conflict : conflicts) {
+            if (equalsIgnoreCase(conflict.getUsername(), user.getUsername())) {
+                throw new AuthException("用户名已存在");
+            }
+        }
+        for (User conflict : conflicts) {
+            if (equalsIgnoreCase(conflict.getEmail(), user.getEmail())) {
+                throw new AuthException("邮箱已被注册");
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new AuthException("手机号已被注册");
+        }
+    }
+
+    private static boolean equalsIgnoreCase(String a, String b) {
+        return a != null && a.equalsIgnoreCase(b);
+    }
+
     /**
      * 为用户分配默认角色
      */
@@ -146,8 +218,15 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         this.updateById(user);
         
         // 清除缓存
-        String cacheKey = RedisKeys.USER_INFO + existingUser.getUsername();
-        redisTemplate.delete(cacheKey);
+        evictUserCache(existingUser);
+        
+        if (StringUtils.hasText(user.getEmail())) {
+            userAvailabilityService.recordTaken(null, user.getEmail());
+        }
+        if (StringUtils.hasText(user.getEmail()) || StringUtils.hasText(user.getPhone())) {
+            // 新邮箱/手机号此前可能被缓存为不存在
+            evictUserCache(user);
+        }
         
         log.info("用户信息更新成功: {}", user.getUsername());
         return user;
@@ -164,22 +243,43 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         }
         
         // 验证旧密码
-        if (!EncryptUtils.verifyPassword(oldPassword, user.getPassword())) {
+        if (!passwordEncoder.matches(oldPassword, user.getPassword())) {
             throw new AuthException("原密码错误");
         }
         
         // 更新密码
-        user.setPassword(EncryptUtils.encryptPassword(newPassword));
+        user.setPassword(passwordEncoder.encode(newPassword));
         user.setUpdatedTime(LocalDateTime.now());
         this.updateById(user);
         
         // 清除缓存
-        String cacheKey = RedisKeys.USER_INFO + user.getUsername();
-        redisTemplate.delete(cacheKey);
+        evictUserCache(user);
+        
+        // 吊销该用户此前签发的所有Token
+        revokeUserTokens(userId);
         
         log.info("用户密码修改成功: {}", user.getUsername());
     }
 
+    /**
+     * 升级密码哈希
+     * 仅当数据库中的哈希仍为旧值时才更新，避免覆盖并发修改的密码；明文未变，不吊销已签发的Token
+     *
+     * @return 是否更新成功
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public boolean upgradePasswordHash(Long userId, String oldEncodedPassword, String newEncodedPassword) {
+        boolean updated = this.update(new UpdateWrapper<User>()
+                .set("password", newEncodedPassword)
+                .set("updated_time", LocalDateTime.now())
+                .eq("id", userId)
+                .eq("password", oldEncodedPassword));
+        if (updated) {
+            evictUserCache(this.getById(userId));
+        }
+        return updated;
+    }
+
     /**
      * 启用/禁用用户
      */
@@ -198,8 +298,10 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         this.updateById(user);
         
         // 清除缓存
-        String cacheKey = RedisKeys.USER_INFO + user.getUsername();
-        redisTemplate.delete(cacheKey);
+        evictUserCache(user);
+        
+        // 吊销该用户此前签发的所有Token
+        revokeUserTokens(userId);
         
         log.info("用户状态切换成功: {} -> {}", user.getUsername(), 
                 newStatus == User.STATUS_ENABLED ? "启用" : "禁用");
@@ -240,8 +342,7 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         this.updateById(user);
         
         // 清除缓存
-        String cacheKey = RedisKeys.USER_INFO + user.getUsername();
-        redisTemplate.delete(cacheKey);
+        evictUserCache(user);
         
         log.info("用户邮箱验证成功: {}", user.getUsername());
     }
@@ -261,8 +362,7 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         this.updateById(user);
         
         // 清除缓存
-        String cacheKey = RedisKeys.USER_INFO + user.getUsername();
-        redisTemplate.delete(cacheKey);
+        evictUserCache(user);
         
         log.info("用户手机号验证成功: {}", user.getUsername());
     }
@@ -281,11 +381,64 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         return roleService.getUserPermissions(userId);
     }
 
+    /**
+     * 批量获取用户的角色列表
+     */
+    public Map<Long, List<String>> getUserRolesBatch(Collection<Long> userIds) {
+        return roleService.getUserRolesBatch(userIds);
+    }
+
+    /**
+     * 批量获取用户的权限列表
+     */
+    public Map<Long, List<String>> getUserPermissionsBatch(Collection<Long> userIds) {
+        return roleService.getUserPermissionsBatch(userIds);
+    }
+
     /**
      * 根据ID获取用户
      */
     public User getUserById(Long id) {
-        return this.getById(id);
+        if (id == null) {
+            return null;
+        }
+        return userByIdCache.get(String.valueOf(id));
+    }
+
+    /**
+     * 根据ID列表批量获取用户
+     * 重复ID会被合并，结果按首次出现的顺序返回，不存在的用户被忽略
+     */
+    public List<User> getUsersByIds(Collection<Long> ids) {
+        List<String> keys = distinctUserIds(ids).stream()
+                .map(String::valueOf)
+                .toList();
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, User> users = userByIdCache.getAll(keys);
+        return keys.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * 合并重复的用户ID（保持首次出现的顺序），并校验批量上限
+     */
+    public List<Long> distinctUserIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> distinctIds = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (distinctIds.size() > batchMaxSize) {
+            throw new AuthException("批量查询用户数量不能超过" + batchMaxSize);
+        }
+        return new ArrayList<>(distinctIds);
     }
 
     /**
@@ -320,8 +473,10 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         this.updateById(user);
         
         // 清除缓存
-        String cacheKey = RedisKeys.USER_INFO + user.getUsername();
-        redisTemplate.delete(cacheKey);
+        evictUserCache(user);
+        
+        // 吊销该用户此前签发的所有Token
+        revokeUserTokens(userId);
         
         log.info("用户删除成功: {}", user.getUsername());
     }
@@ -341,8 +496,10 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         this.updateById(user);
         
         // 清除缓存
-        String cacheKey = RedisKeys.USER_INFO + user.getUsername();
-        redisTemplate.delete(cacheKey);
+        evictUserCache(user);
+        
+        // 吊销该用户此前签发的所有Token
+        revokeUserTokens(userId);
         
         log.info("用户状态更新成功: {} -> {}", user.getUsername(), status);
     }
@@ -359,13 +516,15 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         
         // 生成新密码
         String newPassword = generateRandomPassword();
-        user.setPassword(EncryptUtils.encryptPassword(newPassword));
+        user.setPassword(passwordEncoder.encode(newPassword));
         user.setUpdatedTime(LocalDateTime.now());
         this.updateById(user);
         
         // 清除缓存
-        String cacheKey = RedisKeys.USER_INFO + user.getUsername();
-        redisTemplate.delete(cacheKey);
+        evictUserCache(user);
+        
+        // 吊销该用户此前签发的所有Token
+        revokeUserTokens(userId);
         
         log.info("用户密码重置成功: {}", user.getUsername());
         return newPassword;
@@ -387,6 +546,61 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         roleService.removeRolesFromUser(userId, roleIds);
     }
 
+    /**
+     * 清除用户信息缓存
+     * 在事务提交后执行：提交前失效的话，并发读取会把未提交前的旧数据重新写回L2和各节点L1
+     */
+    private void evictUserCache(User user) {
+        String username = StringUtils.hasText(user.getUsername()) ? normalizeKey(user.getUsername()) : null;
+        String email = StringUtils.hasText(user.getEmail()) ? normalizeKey(user.getEmail()) : null;
+        String phone = StringUtils.hasText(user.getPhone()) ? user.getPhone().trim() : null;
+        String userId = String.valueOf(user.getId());
+        afterCommit(() -> {
+            if (username != null) {
+                userInfoCache.evict(username);
+            }
+            if (email != null) {
+                userByEmailCache.evict(email);
+            }
+            if (phone != null) {
+                userByPhoneCache.evict(phone);
+            }
+            userByIdCache.evict(userId);
+            eventPublisher.publishEvent(new UserAuthChangedEvent(user.getId()));
+        });
+    }
+
+    /**
+     * 用户名、邮箱不区分大小写（与数据库排序规则一致），缓存Key统一转为小写
+     */
+    private static String normalizeKey(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 在当前事务提交后执行，无事务时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 吊销用户的所有Token，并删除刷新Token
+     */
+    private void revokeUserTokens(Long userId) {
+        tokenRevocationService.revokeAllTokens(userId);
+        redisTemplate.delete(RedisKeys.REFRESH_TOKEN + userId);
+    }
+
     /**
      * 生成随机密码
      */
@@ -0,0 +1,60 @@
+package com.mengnankk.auth.util;
+
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Token内嵌的角色/权限快照
+ * 紧凑编码格式: {格式版本};{角色1,角色2};{权限1,权限2}
+ */
+@Getter
+public class AuthorityClaims {
+
+    /** 当前编码格式版本 */
+    public static final String FORMAT_VERSION = "1";
+
+    private static final String SECTION_SEPARATOR = ";";
+    private static final String ITEM_SEPARATOR = ",";
+
+    private final List<String> roles;
+    private final List<String> permissions;
+
+    public AuthorityClaims(List<String> roles, List<String> permissions) {
+        this.roles = roles != null ? roles : Collections.emptyList();
+        this.permissions = permissions != null ? permissions : Collections.emptyList();
+    }
+
+    /**
+     * 编码为紧凑字符串
+     */
+    public String encode() {
+        return FORMAT_VERSION + SECTION_SEPARATOR
+                + String.join(ITEM_SEPARATOR, roles) + SECTION_SEPARATOR
+                + String.join(ITEM_SEPARATOR, permissions);
+    }
+
+    /**
+     * 从紧凑字符串解码，无法识别的格式返回null
+     */
+    public static AuthorityClaims decode(String encoded) {
+        if (!StringUtils.hasText(encoded)) {
+            return null;
+        }
+        String[] sections = encoded.split(SECTION_SEPARATOR, -1);
+        if (sections.length != 3 || !FORMAT_VERSION.equals(sections[0])) {
+            return null;
+        }
+        return new AuthorityClaims(splitItems(sections[1]), splitItems(sections[2]));
+    }
+
+    private static List<String> splitItems(String section) {
+        if (section.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(section.split(ITEM_SEPARATOR));
+    }
+}
@@ -0,0 +1,129 @@
+package com.mengnankk.auth.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的布隆过滤器
+ * mightContain返回false表示一定不存在；返回true表示可能存在，需要二次确认
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashFunctions;
+
+    private BloomFilter(long bitSize, int hashFunctions) {
+        int words = (int) ((bitSize + 63) >>> 6);
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = (long) words << 6;
+        this.hashFunctions = hashFunctions;
+    }
+
+    /**
+     * 按预期元素数量和误判率创建布隆过滤器
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(expectedInsertions, 1);
+        double p = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new BloomFilter(Math.max(m, 64), k);
+    }
+
+    /**
+     * 添加元素
+     */
+    public void put(String value) {
+        long hash64 = murmurHash64(value);
+        int hash1 = (int) hash64;
+        int hash2 = (int) (hash64 >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            setBit(index(hash1 + i * hash2));
+        }
+    }
+
+    /**
+     * 判断元素是否可能存在
+     */
+    public boolean mightContain(String value) {
+        long hash64 = murmurHash64(value);
+        int hash1 = (int) hash64;
+        int hash2 = (int) (hash64 >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            if (!getBit(index(hash1 + i * hash2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(int combinedHash) {
+        long hash = combinedHash < 0 ? ~combinedHash : combinedHash;
+        return hash % bitSize;
+    }
+
+    private void setBit(long bitIndex) {
+        int wordIndex = (int) (bitIndex >>> 6);
+        long mask = 1L << bitIndex;
+        long oldValue;
+        do {
+            oldValue = bits.get(wordIndex);
+            if ((oldValue & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(wordIndex, oldValue, oldValue | mask));
+    }
+
+    private boolean getBit(long bitIndex) {
+        return (bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) != 0;
+    }
+
+    /**
+     * MurmurHash64A
+     */
+    private static long murmurHash64(String value) {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        final long m = 0xc6a4a7935bd1e995L;
+        final int r = 47;
+        long h = 0x9747b28cL ^ (data.length * m);
+
+        int length8 = data.length / 8;
+        for (int i = 0; i < length8; i++) {
+            int offset = i * 8;
+            long k = (data[offset] & 0xffL)
+                    | ((data[offset + 1] & 0xffL) << 8)
+                    | ((data[offset + 2] & 0xffL) << 16)
+                    | ((data[offset + 3] & 0xffL) << 24)
+                    | ((data[offset + 4] & 0xffL) << 32)
+                    | ((data[offset + 5] & 0xffL) << 40)
+                    | ((data[offset + 6] & 0xffL) << 48)
+                    | ((data[offset + 7] & 0xffL) << 56);
+            k *= m;
+            k ^= k >>> r;
+            k *= m;
+            h ^= k;
+            h *= m;
+        }
+
+        int tailStart = length8 * 8;
+        switch (data.length % 8) {
+            case 7: h ^= (data[tailStart + 6] & 0xffL) << 48;
+            case 6: h ^= (data[tailStart + 5] & 0xffL) << 40;
+            case 5: h ^= (data[tailStart + 4] & 0xffL) << 32;
+            case 4: h ^= (data[tailStart + 3] & 0xffL) << 24;
+            case 3: h ^= (data[tailStart + 2] & 0xffL) << 16;
+            case 2: h ^= (data[tailStart + 1] & 0xffL) << 8;
+            case 1:
+                h ^= data[tailStart] & 0xffL;
+                h *= m;
+            default:
+                break;
+        }
+
+        h ^= h >>> r;
+        h *= m;
+        h ^= h >>> r;
+        return h;
+    }
+}
@@ -0,0 +1,77 @@
+package com.mengnankk.auth.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客户端IP解析
+ * X-Forwarded-For可由客户端任意伪造，只有直连地址是受信任代理（如网关）时才采用，
+ * 并从右向左跳过受信任代理追加的地址，取第一个不受信任的地址；否则直接使用直连地址。
+ * 受信任代理支持单个地址和CIDR网段，默认信任回环和私有网段（网关与本服务部署在同一内网）。
+ * 解析结果用于登录失败锁定和接口限流的Key。
+ */
+@Component
+public class ClientIpResolver {
+
+    private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    private final List<IpAddressMatcher> trustedProxies;
+
+    public ClientIpResolver(@Value("${auth.security.trusted-proxies:127.0.0.0/8,::1,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16,fc00::/7}")
+                            List<String> trustedProxies) {
+        this.trustedProxies = new ArrayList<>();
+        for (String proxy : trustedProxies) {
+            if (StringUtils.hasText(proxy)) {
+                this.trustedProxies.add(new IpAddressMatcher(proxy.trim()));
+            }
+        }
+        if (this.trustedProxies.isEmpty()) {
+            throw new IllegalStateException("auth.security.trusted-proxies不能为空，"
+                    + "否则经网关转发的请求都会解析为网关地址，按IP的限流和登录锁定将对所有用户生效");
+        }
+    }
+
+    /**
+     * 获取客户端IP地址
+     */
+    public String getClientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!isTrusted(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        String forwardedFor = request.getHeader(FORWARDED_FOR_HEADER);
+        if (!StringUtils.hasText(forwardedFor)) {
+            return remoteAddr;
+        }
+
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (StringUtils.hasText(hop) && !isTrusted(hop)) {
+                return hop;
+            }
+        }
+        return remoteAddr;
+    }
+
+    private boolean isTrusted(String address) {
+        for (IpAddressMatcher matcher : trustedProxies) {
+            try {
+                if (matcher.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // 非IP格式的值（如伪造的主机名）一律视为不受信任
+                return false;
+            }
+        }
+        return false;
+    }
+}
@@ -22,14 +22,20 @@ public class EncryptUtils {
 
     /**
      * 密码加密
+     *
+     * @deprecated 固定使用默认代价，且在调用线程上直接计算；请注入PasswordEncoder
      */
+    @Deprecated
     public static String encryptPassword(String plainPassword) {
         return PASSWORD_ENCODER.encode(plainPassword);
     }
 
     /**
      * 密码验证
+     *
+     * @deprecated 在调用线程上直接计算；请注入PasswordEncoder
      */
+    @Deprecated
     public static boolean verifyPassword(String plainPassword, String hashedPassword) {
         return PASSWORD_ENCODER.matches(plainPassword, hashedPassword);
     }
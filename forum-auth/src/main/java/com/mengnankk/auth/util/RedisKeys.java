@@ -7,16 +7,55 @@ public class RedisKeys {
 
     /** 用户信息缓存前缀 */
     public static final String USER_INFO = "auth:user:info:";
+
+    /** 用户信息缓存前缀（按用户ID） */
+    public static final String USER_INFO_BY_ID = "auth:user:id:";
+
+    /** 用户信息缓存前缀（按邮箱） */
+    public static final String USER_INFO_BY_EMAIL = "auth:user:email:";
+
+    /** 用户信息缓存前缀（按手机号） */
+    public static final String USER_INFO_BY_PHONE = "auth:user:phone:";
     
+    /** 用户认证快照前缀 */
+    public static final String USER_AUTH_SNAPSHOT = "auth:user:snapshot:";
+
     /** 用户角色缓存前缀 */
     public static final String USER_ROLES = "auth:user:roles:";
     
     /** 用户权限缓存前缀 */
     public static final String USER_PERMISSIONS = "auth:user:permissions:";
     
+    /** 用户权限版本号前缀 */
+    public static final String USER_AUTH_VERSION = "auth:user:auth-version:";
+    
     /** Token黑名单前缀 */
     public static final String TOKEN_BLACKLIST = "auth:token:blacklist:";
     
+    /** Token吊销广播频道 */
+    public static final String TOKEN_REVOCATION_CHANNEL = "auth:channel:token-revocation";
+    
+    /** 用户吊销纪元前缀（该时间点之前签发的Token无效） */
+    public static final String USER_TOKEN_EPOCH = "auth:user:tokens-valid-after:";
+    
+    /** 用户吊销纪元广播频道 */
+    public static final String USER_TOKEN_EPOCH_CHANNEL = "auth:channel:user-token-epoch";
+
+    /** 本地缓存失效广播频道 */
+    public static final String CACHE_INVALIDATION_CHANNEL = "auth:channel:cache-invalidation";
+
+    /** 用户注册广播频道（同步用户名/邮箱布隆过滤器） */
+    public static final String USER_REGISTERED_CHANNEL = "auth:channel:user-registered";
+
+    /** RBAC关系图变更广播频道 */
+    public static final String RBAC_CHANGE_CHANNEL = "auth:channel:rbac-change";
+
+    /** 全局RBAC缓存代数 */
+    public static final String RBAC_GENERATION = "auth:rbac:generation";
+
+    /** 角色权限代数（Hash：角色名 -> 该角色最近一次变更时的全局代数） */
+    public static final String RBAC_ROLE_GENERATIONS = "auth:rbac:role-generation";
+
     /** 短信验证码前缀 */
     public static final String SMS_CODE = "auth:sms:code:";
     
@@ -25,6 +64,12 @@ public class RedisKeys {
     
     /** 登录失败计数前缀 */
     public static final String LOGIN_FAIL_COUNT = "auth:login:fail:";
+
+    /** 登录事件按分钟统计前缀 */
+    public static final String LOGIN_STATS = "auth:stats:login:";
+
+    /** 接口限流前缀 */
+    public static final String RATE_LIMIT = "auth:ratelimit:";
     
     /** 账户锁定前缀 */
     public static final String ACCOUNT_LOCK = "auth:account:lock:";
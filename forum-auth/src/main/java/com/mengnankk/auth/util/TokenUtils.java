@@ -1,15 +1,26 @@
 package com.mengnankk.auth.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.mengnankk.auth.exception.TokenExpiredException;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT Token工具类
@@ -17,6 +28,15 @@ import java.util.Map;
 @Component
 public class TokenUtils {
 
+    /** 角色/权限快照Claim */
+    public static final String CLAIM_AUTHORITIES = "auth";
+
+    /** 用户权限版本号Claim */
+    public static final String CLAIM_AUTH_VERSION = "av";
+
+    /** 角色权限代数Claim */
+    public static final String CLAIM_ROLE_VERSION = "rv";
+
     @Value("${jwt.secret:ForumJwtSecretKeyForAuthentication}")
     private String jwtSecret;
 
@@ -26,6 +46,46 @@ public class TokenUtils {
     @Value("${jwt.refresh-expiration:604800}")
     private Long refreshExpiration; // 默认7天
 
+    @Value("${jwt.verified-cache.maximum-size:100000}")
+    private Long verifiedCacheMaximumSize;
+
+    /** 签名密钥，启动时构建一次 */
+    private SecretKey signKey;
+
+    /** 可复用的JWT解析器（线程安全） */
+    private JwtParser jwtParser;
+
+    /** 已验签Token缓存：Token摘要 -> 验签结果，条目随Token过期而失效 */
+    private Cache<String, VerifiedToken> verifiedTokenCache;
+
+    @PostConstruct
+    public void init() {
+        this.signKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parser()
+                .verifyWith(signKey)
+                .build();
+        this.verifiedTokenCache = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaximumSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long remainingMillis = value.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     /**
      * 生成访问Token
      */
@@ -36,6 +96,20 @@ public class TokenUtils {
         return generateToken(claims, username, jwtExpiration * 1000);
     }
 
+    /**
+     * 生成携带角色/权限快照的访问Token（无状态认证模式）
+     */
+    public String generateAccessToken(String username, Long userId, List<String> roles,
+                                      List<String> permissions, long authVersion, long roleVersion) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", userId);
+        claims.put("type", "access");
+        claims.put(CLAIM_AUTHORITIES, new AuthorityClaims(roles, permissions).encode());
+        claims.put(CLAIM_AUTH_VERSION, authVersion);
+        claims.put(CLAIM_ROLE_VERSION, roleVersion);
+        return generateToken(claims, username, jwtExpiration * 1000);
+    }
+
     /**
      * 生成刷新Token
      */
@@ -62,36 +136,56 @@ public class TokenUtils {
                 .compact();
     }
 
+    /**
+     * 解析并验证Token
+     * 同一个Token在有效期内只做一次验签，之后直接从缓存返回验签结果
+     */
+    public VerifiedToken parseToken(String token) {
+        if (!StringUtils.hasText(token)) {
+            throw new IllegalArgumentException("Token不能为空");
+        }
+
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokenCache.getIfPresent(digest);
+        if (cached != null) {
+            if (cached.isExpired()) {
+                verifiedTokenCache.invalidate(digest);
+                throw new TokenExpiredException("Token已过期");
+            }
+            return cached;
+        }
+
+        VerifiedToken verifiedToken = new VerifiedToken(token, getClaimsFromToken(token));
+        verifiedTokenCache.put(digest, verifiedToken);
+        return verifiedToken;
+    }
+
     /**
      * 从Token中获取用户名
      */
     public String getUsernameFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.getSubject();
+        return parseToken(token).getUsername();
     }
 
     /**
      * 从Token中获取用户ID
      */
     public Long getUserIdFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return Long.valueOf(claims.get("userId").toString());
+        return parseToken(token).getUserId();
     }
 
     /**
      * 从Token中获取Token类型
      */
     public String getTokenType(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.get("type").toString();
+        return parseToken(token).getTokenType();
     }
 
     /**
      * 从Token中获取过期时间
      */
     public Date getExpirationDateFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.getExpiration();
+        return parseToken(token).getExpiration();
     }
 
     /**
@@ -99,9 +193,8 @@ public class TokenUtils {
      */
     public boolean isTokenExpired(String token) {
         try {
-            Date expiration = getExpirationDateFromToken(token);
-            return expiration.before(new Date());
-        } catch (ExpiredJwtException e) {
+            return parseToken(token).isExpired();
+        } catch (TokenExpiredException e) {
             return true;
         }
     }
@@ -111,9 +204,9 @@ public class TokenUtils {
      */
     public boolean validateToken(String token) {
         try {
-            getClaimsFromToken(token);
-            return !isTokenExpired(token);
-        } catch (JwtException | IllegalArgumentException e) {
+            parseToken(token);
+            return true;
+        } catch (RuntimeException e) {
             return false;
         }
     }
@@ -123,12 +216,8 @@ public class TokenUtils {
      */
     public boolean validateToken(String token, String expectedType) {
         try {
-            if (!validateToken(token)) {
-                return false;
-            }
-            String tokenType = getTokenType(token);
-            return expectedType.equals(tokenType);
-        } catch (Exception e) {
+            return parseToken(token).isType(expectedType);
+        } catch (RuntimeException e) {
             return false;
         }
     }
@@ -138,11 +227,7 @@ public class TokenUtils {
      */
     private Claims getClaimsFromToken(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSignKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return jwtParser.parseSignedClaims(token).getPayload();
         } catch (ExpiredJwtException e) {
             throw new TokenExpiredException("Token已过期");
         } catch (JwtException e) {
@@ -154,37 +239,50 @@ public class TokenUtils {
      * 获取签名密钥
      */
     private SecretKey getSignKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signKey;
+    }
+
+    /**
+     * 计算Token摘要，作为验签缓存的Key
+     */
+    private String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
     }
 
     /**
      * 刷新Token
      */
     public String refreshToken(String refreshToken) {
-        if (!validateToken(refreshToken, "refresh")) {
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = parseToken(refreshToken);
+        } catch (RuntimeException e) {
+            throw new TokenExpiredException("刷新Token无效或已过期");
+        }
+        if (!verifiedToken.isType("refresh")) {
             throw new TokenExpiredException("刷新Token无效或已过期");
         }
 
-        String username = getUsernameFromToken(refreshToken);
-        Long userId = getUserIdFromToken(refreshToken);
-
-        return generateAccessToken(username, userId);
+        return generateAccessToken(verifiedToken.getUsername(), verifiedToken.getUserId());
     }
 
     /**
      * 获取Token剩余过期时间（秒）
      */
     public long getTokenRemainingTime(String token) {
-        Date expiration = getExpirationDateFromToken(token);
-        long now = System.currentTimeMillis();
-        return (expiration.getTime() - now) / 1000;
+        return parseToken(token).getRemainingSeconds();
     }
 
     /**
      * 生成Token ID（用于黑名单）
      */
     public String getTokenId(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return EncryptUtils.md5(claims.getSubject() + claims.getIssuedAt().getTime());
+        return parseToken(token).getTokenId();
     }
 }
@@ -0,0 +1,69 @@
+package com.mengnankk.auth.util;
+
+import io.jsonwebtoken.Claims;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * 已验签的Token
+ * 一次解析验签后产生，在同一请求内（以及Token有效期内的缓存中）被所有调用方复用
+ */
+@Getter
+public class VerifiedToken {
+
+    private final String token;
+    private final Claims claims;
+    private final String username;
+    private final Long userId;
+    private final String tokenType;
+    private final Date issuedAt;
+    private final Date expiration;
+    private final String tokenId;
+    /** 内嵌的角色/权限快照，仅无状态模式签发的访问Token携带 */
+    private final AuthorityClaims authorities;
+    /** 签发时的用户权限版本号 */
+    private final Long authVersion;
+    /** 签发时令牌中角色的权限代数 */
+    private final Long roleVersion;
+
+    public VerifiedToken(String token, Claims claims) {
+        this.token = token;
+        this.claims = claims;
+        this.username = claims.getSubject();
+        Object userIdClaim = claims.get("userId");
+        this.userId = userIdClaim != null ? Long.valueOf(userIdClaim.toString()) : null;
+        Object typeClaim = claims.get("type");
+        this.tokenType = typeClaim != null ? typeClaim.toString() : null;
+        this.issuedAt = claims.getIssuedAt();
+        this.expiration = claims.getExpiration();
+        this.tokenId = EncryptUtils.md5(username + issuedAt.getTime());
+        Object authoritiesClaim = claims.get(TokenUtils.CLAIM_AUTHORITIES);
+        this.authorities = authoritiesClaim != null ? AuthorityClaims.decode(authoritiesClaim.toString()) : null;
+        Object versionClaim = claims.get(TokenUtils.CLAIM_AUTH_VERSION);
+        this.authVersion = versionClaim != null ? Long.valueOf(versionClaim.toString()) : null;
+        Object roleVersionClaim = claims.get(TokenUtils.CLAIM_ROLE_VERSION);
+        this.roleVersion = roleVersionClaim != null ? Long.valueOf(roleVersionClaim.toString()) : null;
+    }
+
+    /**
+     * 检查Token是否过期
+     */
+    public boolean isExpired() {
+        return expiration.getTime() <= System.currentTimeMillis();
+    }
+
+    /**
+     * 检查Token类型
+     */
+    public boolean isType(String expectedType) {
+        return expectedType.equals(tokenType);
+    }
+
+    /**
+     * 获取Token剩余过期时间（秒）
+     */
+    public long getRemainingSeconds() {
+        return (expiration.getTime() - System.currentTimeMillis()) / 1000;
+    }
+}
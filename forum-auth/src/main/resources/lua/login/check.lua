@@ -0,0 +1,9 @@
+-- 登录前检查账户与IP是否已被锁定
+-- KEYS[1]: 账户锁定Key  KEYS[2]: IP锁定Key
+-- 返回: {账户剩余锁定时间(毫秒), IP剩余锁定时间(毫秒)}，0表示未锁定
+local result = {}
+for i = 1, #KEYS do
+    local ttl = redis.call('PTTL', KEYS[i])
+    result[i] = ttl > 0 and ttl or 0
+end
+return result
@@ -0,0 +1,25 @@
+-- 记录一次登录失败，达到阈值时锁定并清空计数
+-- KEYS[1]: 账户失败计数Key  KEYS[2]: IP失败计数Key  KEYS[3]: 账户锁定Key  KEYS[4]: IP锁定Key
+-- ARGV[1]: 账户失败阈值  ARGV[2]: IP失败阈值  ARGV[3]: 计数窗口(毫秒)  ARGV[4]: 锁定时长(毫秒)
+-- 返回: {账户剩余尝试次数, 剩余锁定时间(毫秒)，0表示未锁定}
+local userMax = tonumber(ARGV[1])
+local ipMax = tonumber(ARGV[2])
+local window = tonumber(ARGV[3])
+local lockMillis = tonumber(ARGV[4])
+
+local function record(countKey, lockKey, max)
+    local count = redis.call('INCR', countKey)
+    if count == 1 then
+        redis.call('PEXPIRE', countKey, window)
+    end
+    if count >= max then
+        redis.call('SET', lockKey, count, 'PX', lockMillis)
+        redis.call('DEL', countKey)
+        return 0, lockMillis
+    end
+    return max - count, 0
+end
+
+local userRemaining, userLock = record(KEYS[1], KEYS[3], userMax)
+local ipRemaining, ipLock = record(KEYS[2], KEYS[4], ipMax)
+return {userRemaining, math.max(userLock, ipLock)}
@@ -0,0 +1,19 @@
+-- 固定窗口限流
+-- KEYS[1]: 计数Key
+-- ARGV[1]: 窗口内允许的请求数  ARGV[2]: 窗口长度(毫秒)
+-- 返回: {是否放行(1/0), 剩余配额, 建议重试等待(毫秒)}
+local key = KEYS[1]
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+
+local count = redis.call('INCR', key)
+local ttl = redis.call('PTTL', key)
+if ttl < 0 then
+    redis.call('PEXPIRE', key, window)
+    ttl = window
+end
+
+if count > limit then
+    return {0, 0, ttl}
+end
+return {1, limit - count, 0}
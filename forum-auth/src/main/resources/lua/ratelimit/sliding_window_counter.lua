@@ -0,0 +1,38 @@
+-- 滑动窗口计数限流，用上一窗口计数按重叠比例加权近似滑动窗口，内存占用固定
+-- KEYS[1]: 哈希Key，字段为窗口序号
+-- ARGV[1]: 窗口内允许的请求数  ARGV[2]: 窗口长度(毫秒)
+-- 返回: {是否放行(1/0), 剩余配额, 建议重试等待(毫秒)}
+local key = KEYS[1]
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local current = math.floor(now / window)
+local elapsed = now - current * window
+
+local counts = redis.call('HMGET', key, tostring(current), tostring(current - 1))
+local curr = tonumber(counts[1]) or 0
+local prev = tonumber(counts[2]) or 0
+local weighted = prev * (window - elapsed) / window + curr
+
+if weighted + 1 > limit then
+    local retry
+    if curr + 1 > limit or prev == 0 then
+        retry = window - elapsed
+    else
+        retry = math.ceil(window - elapsed - (limit - curr - 1) * window / prev)
+    end
+    return {0, 0, math.max(retry, 1)}
+end
+
+redis.call('HINCRBY', key, tostring(current), 1)
+if redis.call('HLEN', key) > 2 then
+    for _, field in ipairs(redis.call('HKEYS', key)) do
+        if tonumber(field) < current - 1 then
+            redis.call('HDEL', key, field)
+        end
+    end
+end
+redis.call('PEXPIRE', key, window * 2)
+return {1, math.floor(limit - weighted - 1), 0}
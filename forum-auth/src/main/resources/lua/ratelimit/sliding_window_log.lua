@@ -0,0 +1,22 @@
+-- 滑动窗口日志限流，精确记录窗口内每次请求的时间戳
+-- KEYS[1]: 有序集合Key
+-- ARGV[1]: 窗口内允许的请求数  ARGV[2]: 窗口长度(毫秒)  ARGV[3]: 本次请求的唯一标识
+-- 返回: {是否放行(1/0), 剩余配额, 建议重试等待(毫秒)}
+local key = KEYS[1]
+local limit = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+local count = redis.call('ZCARD', key)
+if count < limit then
+    redis.call('ZADD', key, now, ARGV[3])
+    redis.call('PEXPIRE', key, window)
+    return {1, limit - count - 1, 0}
+end
+
+local oldest = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+local retry = tonumber(oldest[2]) + window - now
+return {0, 0, math.max(retry, 1)}
@@ -0,0 +1,33 @@
+-- 令牌桶限流，桶容量为limit，每个窗口长度匀速补满一次，允许突发
+-- KEYS[1]: 哈希Key，字段tokens为剩余令牌数，ts为上次补充时间(毫秒)
+-- ARGV[1]: 桶容量  ARGV[2]: 补满整桶所需时间(毫秒)
+-- 返回: {是否放行(1/0), 剩余配额, 建议重试等待(毫秒)}
+local key = KEYS[1]
+local capacity = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local rate = capacity / window
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local bucket = redis.call('HMGET', key, 'tokens', 'ts')
+local tokens = tonumber(bucket[1])
+local ts = tonumber(bucket[2])
+if tokens == nil or ts == nil then
+    tokens = capacity
+    ts = now
+end
+tokens = math.min(capacity, tokens + math.max(now - ts, 0) * rate)
+
+local allowed = 0
+local retry = 0
+if tokens >= 1 then
+    tokens = tokens - 1
+    allowed = 1
+else
+    retry = math.ceil((1 - tokens) / rate)
+end
+
+redis.call('HSET', key, 'tokens', tostring(tokens), 'ts', tostring(now))
+redis.call('PEXPIRE', key, window)
+return {allowed, math.floor(tokens), retry}
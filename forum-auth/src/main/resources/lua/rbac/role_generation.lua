@@ -0,0 +1,14 @@
+-- 将角色代数提升到指定值，只增不减，避免并发变更时较小的代数覆盖较大的代数
+-- KEYS[1]: 角色代数Hash
+-- ARGV[1]: 代数  ARGV[2..n]: 角色名
+-- 返回: 实际提升的角色数
+local generation = tonumber(ARGV[1])
+local updated = 0
+for i = 2, #ARGV do
+    local current = tonumber(redis.call('HGET', KEYS[1], ARGV[i]) or '0')
+    if current < generation then
+        redis.call('HSET', KEYS[1], ARGV[i], generation)
+        updated = updated + 1
+    end
+end
+return updated
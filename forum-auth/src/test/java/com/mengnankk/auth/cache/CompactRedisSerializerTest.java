@@ -0,0 +1,164 @@
+package com.mengnankk.auth.cache;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mengnankk.auth.entity.User;
+import com.mengnankk.auth.security.UserAuthSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CompactRedisSerializerTest {
+
+    /** 与RedisConfig中的后备序列化器配置一致，用于生成旧版本写入的JSON数据 */
+    private final Jackson2JsonRedisSerializer<Object> jsonSerializer = jsonSerializer();
+
+    private final CompactRedisSerializer compact =
+            new CompactRedisSerializer(jsonSerializer, true, new SimpleMeterRegistry());
+
+    private final CompactRedisSerializer jsonOnly =
+            new CompactRedisSerializer(jsonSerializer, false, new SimpleMeterRegistry());
+
+    @Test
+    void roundTripsUserWithoutPassword() {
+        User user = user();
+        user.setPassword("$2a$10$hash");
+
+        byte[] bytes = compact.serialize(user);
+
+        assertEquals(CompactRedisSerializer.MAGIC, bytes[0]);
+        User decoded = (User) compact.deserialize(bytes);
+        assertNull(decoded.getPassword());
+        user.setPassword(null);
+        assertEquals(user, decoded);
+    }
+
+    @Test
+    void roundTripsUserWithNullFields() {
+        User user = new User();
+        user.setId(1L);
+
+        assertEquals(user, compact.deserialize(compact.serialize(user)));
+    }
+
+    @Test
+    void roundTripsAuthSnapshot() {
+        UserAuthSnapshot snapshot = UserAuthSnapshot.of(user(), List.of("ROLE_USER", "ROLE_ADMIN"),
+                List.of("post:read", "post:write"), 1_700_000_000_000L, 3L);
+
+        byte[] bytes = compact.serialize(snapshot);
+
+        assertEquals(CompactRedisSerializer.MAGIC, bytes[0]);
+        assertEquals(snapshot, compact.deserialize(bytes));
+    }
+
+    @Test
+    void roundTripsAuthSnapshotWithNullLists() {
+        UserAuthSnapshot snapshot = UserAuthSnapshot.of(user(), null, null, 0L, 0L);
+
+        assertEquals(snapshot, compact.deserialize(compact.serialize(snapshot)));
+    }
+
+    @Test
+    void roundTripsStringLists() {
+        List<String> roles = List.of("ROLE_USER", "ROLE_管理员");
+
+        byte[] bytes = compact.serialize(roles);
+
+        assertEquals(CompactRedisSerializer.MAGIC, bytes[0]);
+        assertEquals(roles, compact.deserialize(bytes));
+        assertEquals(List.of(), compact.deserialize(compact.serialize(new ArrayList<String>())));
+    }
+
+    @Test
+    void roundTripsNullSentinel() {
+        byte[] bytes = compact.serialize(TwoLevelCache.NULL_SENTINEL);
+
+        assertEquals(CompactRedisSerializer.MAGIC, bytes[0]);
+        assertEquals(TwoLevelCache.NULL_SENTINEL, compact.deserialize(bytes));
+    }
+
+    @Test
+    void fallsBackToJsonForOtherTypes() {
+        Map<String, Object> value = new HashMap<>(Map.of("key", "value"));
+
+        byte[] bytes = compact.serialize(value);
+
+        assertNotEquals(CompactRedisSerializer.MAGIC, bytes[0]);
+        assertEquals(value, compact.deserialize(bytes));
+    }
+
+    @Test
+    void readsLegacyJsonValues() {
+        User user = user();
+        UserAuthSnapshot snapshot = UserAuthSnapshot.of(user, List.of("ROLE_USER"), List.of("post:read"), 1L, 2L);
+        List<String> roles = new ArrayList<>(List.of("ROLE_USER"));
+
+        assertEquals(user, compact.deserialize(jsonSerializer.serialize(user)));
+        assertEquals(snapshot, compact.deserialize(jsonSerializer.serialize(snapshot)));
+        assertEquals(roles, compact.deserialize(jsonSerializer.serialize(roles)));
+        assertEquals(TwoLevelCache.NULL_SENTINEL,
+                compact.deserialize(jsonSerializer.serialize(TwoLevelCache.NULL_SENTINEL)));
+    }
+
+    @Test
+    void writesJsonWhenCompactWritesDisabled() {
+        User user = user();
+
+        byte[] bytes = jsonOnly.serialize(user);
+
+        assertEquals(user, jsonSerializer.deserialize(bytes));
+        assertEquals(user, compact.deserialize(bytes));
+    }
+
+    @Test
+    void treatsNewerFormatVersionAsMiss() {
+        byte[] bytes = compact.serialize(List.of("ROLE_USER"));
+        bytes[1] = (byte) (CompactRedisSerializer.FORMAT_VERSION + 1);
+
+        assertNull(compact.deserialize(bytes));
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(42L);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setNickname("爱丽丝");
+        user.setAvatar("https://example.com/avatar.png");
+        user.setPhone("13800000000");
+        user.setStatus(1);
+        user.setEmailVerified(1);
+        user.setPhoneVerified(0);
+        user.setLastLoginTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_789));
+        user.setLastLoginIp("10.0.0.1");
+        user.setLoginCount(7);
+        user.setCreatedTime(LocalDateTime.of(2024, 1, 1, 0, 0));
+        user.setUpdatedTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+        user.setDeleted(0);
+        return user;
+    }
+
+    private static Jackson2JsonRedisSerializer<Object> jsonSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        objectMapper.registerModule(new JavaTimeModule());
+        return new Jackson2JsonRedisSerializer<>(objectMapper, Object.class);
+    }
+}
@@ -0,0 +1,68 @@
+package com.mengnankk.auth.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AuthEventCodecTest {
+
+    private static final long TIMESTAMP = 1_700_000_000_000L;
+
+    @Test
+    void roundTripsEveryEventType() {
+        List<AuthEvent> events = List.of(
+                new UserRegisteredEvent(TIMESTAMP, 1L, "alice", "alice@example.com"),
+                new UserLoggedInEvent(TIMESTAMP, 2L, "bob", "PASSWORD"),
+                new UserLoggedOutEvent(TIMESTAMP, 3L, "carol"),
+                new PasswordChangedEvent(TIMESTAMP, 4L, "dave"),
+                new EmailVerifiedEvent(TIMESTAMP, 5L, "erin", "erin@example.com"),
+                new PhoneVerifiedEvent(TIMESTAMP, 6L, "frank", "13800000000"),
+                new OAuth2LoggedInEvent(TIMESTAMP, 7L, "grace", "github", "12345"));
+
+        for (AuthEvent event : events) {
+            assertEquals(event, AuthEventCodec.decode(AuthEventCodec.encode(event)));
+        }
+    }
+
+    @Test
+    void roundTripsNullFields() {
+        List<AuthEvent> events = List.of(
+                new UserRegisteredEvent(TIMESTAMP, null, null, null),
+                new UserLoggedInEvent(TIMESTAMP, null, null, null),
+                new UserLoggedOutEvent(TIMESTAMP, null, null),
+                new PasswordChangedEvent(TIMESTAMP, null, null),
+                new EmailVerifiedEvent(TIMESTAMP, null, null, null),
+                new PhoneVerifiedEvent(TIMESTAMP, null, null, null),
+                new OAuth2LoggedInEvent(TIMESTAMP, null, null, null, null));
+
+        for (AuthEvent event : events) {
+            assertEquals(event, AuthEventCodec.decode(AuthEventCodec.encode(event)));
+        }
+    }
+
+    @Test
+    void roundTripsNonAsciiStrings() {
+        AuthEvent event = new UserRegisteredEvent(TIMESTAMP, 8L, "张三", "张三@example.com");
+
+        assertEquals(event, AuthEventCodec.decode(AuthEventCodec.encode(event)));
+    }
+
+    @Test
+    void rejectsNewerSchemaVersion() {
+        byte[] data = AuthEventCodec.encode(new UserLoggedOutEvent(TIMESTAMP, 1L, "alice"));
+        data[0] = (byte) (AuthEvent.SCHEMA_VERSION + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> AuthEventCodec.decode(data));
+    }
+
+    @Test
+    void rejectsUnknownType() {
+        byte[] data = AuthEventCodec.encode(new UserLoggedOutEvent(TIMESTAMP, 1L, "alice"));
+        data[1] = 99;
+
+        assertThrows(IllegalArgumentException.class, () -> AuthEventCodec.decode(data));
+    }
+}
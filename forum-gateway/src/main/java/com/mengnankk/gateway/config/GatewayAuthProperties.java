@@ -0,0 +1,32 @@
+package com.mengnankk.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网关认证配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.auth")
+public class GatewayAuthProperties {
+
+    /** 是否在网关校验JWT */
+    private boolean enabled = true;
+
+    /** JWT签名密钥，需与forum-auth保持一致 */
+    private String secret;
+
+    /** 跳过校验的路径（Ant风格，匹配网关侧的原始路径） */
+    private List<String> whitelist = new ArrayList<>();
+
+    /** 已验签Token本地缓存条数 */
+    private long verifiedCacheSize = 50000;
+
+    /** 吊销状态（黑名单、用户吊销纪元）本地缓存时间（秒） */
+    private long revocationCacheSeconds = 5;
+}
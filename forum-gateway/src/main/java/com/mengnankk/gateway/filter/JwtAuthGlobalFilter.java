@@ -0,0 +1,266 @@
+package com.mengnankk.gateway.filter;
+
+import com.alibaba.fastjson2.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mengnankk.common.entry.Result;
+import com.mengnankk.gateway.config.GatewayAuthProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT认证全局过滤器
+ * 在网关本地完成验签和过期校验（结果按Token缓存），通过响应式Redis检查Token黑名单和用户吊销纪元，
+ * 校验通过后向下游转发可信的身份请求头。无效Token直接在网关拒绝，不再转发到后端。
+ * 未携带Token的请求按匿名请求转发，是否需要登录由下游服务决定。
+ * 下游服务直接信任身份请求头，因此吊销状态无法确认（Redis不可用）时拒绝请求，不转发身份。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JwtAuthGlobalFilter implements GlobalFilter, Ordered {
+
+    /** 用户ID请求头 */
+    public static final String HEADER_USER_ID = "X-Auth-User-Id";
+    /** 用户名请求头 */
+    public static final String HEADER_USERNAME = "X-Auth-Username";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String TOKEN_TYPE_ACCESS = "access";
+
+    /** 与forum-auth中RedisKeys保持一致 */
+    private static final String TOKEN_BLACKLIST = "auth:token:blacklist:";
+    private static final String USER_TOKEN_EPOCH = "auth:user:tokens-valid-after:";
+
+    private final GatewayAuthProperties properties;
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private JwtParser jwtParser;
+
+    /** 已验签Token缓存：Token -> 身份信息，条目在Token过期时失效 */
+    private Cache<String, Identity> verifiedTokenCache;
+
+    /** Token吊销状态缓存：tokenId -> 是否在黑名单中 */
+    private Cache<String, Boolean> blacklistCache;
+
+    /** 用户吊销纪元缓存：userId -> 纪元(秒)，0表示未设置 */
+    private Cache<Long, Long> epochCache;
+
+    @PostConstruct
+    public void init() {
+        this.jwtParser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(properties.getSecret().getBytes()))
+                .build();
+        this.verifiedTokenCache = Caffeine.newBuilder()
+                .maximumSize(properties.getVerifiedCacheSize())
+                .expireAfter(new Expiry<String, Identity>() {
+                    @Override
+                    public long expireAfterCreate(String key, Identity value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(value.expiresAt() - System.currentTimeMillis(), 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Identity value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Identity value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.blacklistCache = Caffeine.newBuilder()
+                .maximumSize(properties.getVerifiedCacheSize())
+                .expireAfterWrite(properties.getRevocationCacheSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.epochCache = Caffeine.newBuilder()
+                .maximumSize(properties.getVerifiedCacheSize())
+                .expireAfterWrite(properties.getRevocationCacheSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        // 始终移除客户端伪造的身份请求头
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    headers.remove(HEADER_USER_ID);
+                    headers.remove(HEADER_USERNAME);
+                })
+                .build();
+        ServerWebExchange sanitized = exchange.mutate().request(request).build();
+
+        if (!properties.isEnabled() || isWhitelisted(request.getPath().value())) {
+            return chain.filter(sanitized);
+        }
+
+        String token = extractToken(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        if (token == null) {
+            return chain.filter(sanitized);
+        }
+
+        Identity identity = verify(token);
+        if (identity == null) {
+            return unauthorized(sanitized, "Token无效或已过期");
+        }
+
+        return isRevoked(identity)
+                .map(revoked -> revoked ? RevocationCheck.REVOKED : RevocationCheck.VALID)
+                .onErrorResume(e -> {
+                    log.warn("Token吊销状态检查失败，拒绝请求: {}", e.getMessage());
+                    return Mono.just(RevocationCheck.UNAVAILABLE);
+                })
+                .flatMap(check -> switch (check) {
+                    case REVOKED -> unauthorized(sanitized, "Token已失效");
+                    case UNAVAILABLE -> reject(sanitized, HttpStatus.SERVICE_UNAVAILABLE, "认证服务暂不可用，请稍后重试");
+                    case VALID -> {
+                        ServerHttpRequest authenticated = request.mutate()
+                                .header(HEADER_USER_ID, String.valueOf(identity.userId()))
+                                .header(HEADER_USERNAME, identity.username())
+                                .build();
+                        yield chain.filter(sanitized.mutate().request(authenticated).build());
+                    }
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        return -100;
+    }
+
+    /**
+     * 验签并解析Token，结果按Token缓存；无效Token返回null
+     */
+    private Identity verify(String token) {
+        Identity cached = verifiedTokenCache.getIfPresent(token);
+        if (cached != null) {
+            return cached.isExpired() ? null : cached;
+        }
+
+        try {
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            Object userIdClaim = claims.get("userId");
+            if (userIdClaim == null || !TOKEN_TYPE_ACCESS.equals(claims.get("type"))) {
+                return null;
+            }
+
+            String username = claims.getSubject();
+            long issuedAt = claims.getIssuedAt().getTime();
+            Identity identity = new Identity(
+                    Long.valueOf(userIdClaim.toString()),
+                    username,
+                    // 与forum-auth中VerifiedToken的tokenId计算方式保持一致
+                    DigestUtils.md5DigestAsHex((username + issuedAt).getBytes(StandardCharsets.UTF_8)),
+                    TimeUnit.MILLISECONDS.toSeconds(issuedAt),
+                    claims.getExpiration().getTime());
+            verifiedTokenCache.put(token, identity);
+            return identity;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Token校验失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 检查Token是否已被吊销（黑名单或签发于用户吊销纪元之前）
+     * Redis查询失败时返回错误信号，由调用方拒绝请求；仅在两项查询都成功后写入本地缓存
+     */
+    private Mono<Boolean> isRevoked(Identity identity) {
+        Boolean blacklisted = blacklistCache.getIfPresent(identity.tokenId());
+        Long epoch = epochCache.getIfPresent(identity.userId());
+        if (blacklisted != null && epoch != null) {
+            return Mono.just(blacklisted || identity.issuedAtSeconds() < epoch);
+        }
+
+        Mono<Boolean> blacklistMono = blacklisted != null
+                ? Mono.just(blacklisted)
+                : reactiveStringRedisTemplate.hasKey(TOKEN_BLACKLIST + identity.tokenId());
+        Mono<Long> epochMono = epoch != null
+                ? Mono.just(epoch)
+                : reactiveStringRedisTemplate.opsForValue().get(USER_TOKEN_EPOCH + identity.userId())
+                        .map(Long::parseLong)
+                        .defaultIfEmpty(0L);
+
+        return Mono.zip(blacklistMono, epochMono)
+                .map(tuple -> {
+                    blacklistCache.put(identity.tokenId(), tuple.getT1());
+                    epochCache.put(identity.userId(), tuple.getT2());
+                    return tuple.getT1() || identity.issuedAtSeconds() < tuple.getT2();
+                });
+    }
+
+    private boolean isWhitelisted(String path) {
+        for (String pattern : properties.getWhitelist()) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String extractToken(String authorization) {
+        if (StringUtils.hasText(authorization) && authorization.startsWith(BEARER_PREFIX)) {
+            return authorization.substring(BEARER_PREFIX.length());
+        }
+        return null;
+    }
+
+    private Mono<Void> unauthorized(ServerWebExchange exchange, String message) {
+        return reject(exchange, HttpStatus.UNAUTHORIZED, message);
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, String message) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] body = JSON.toJSONBytes(Result.error(status.value(), message));
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    /**
+     * 吊销状态检查结果
+     */
+    private enum RevocationCheck {
+        VALID, REVOKED, UNAVAILABLE
+    }
+
+    /**
+     * 已验签的身份信息
+     */
+    private record Identity(Long userId, String username, String tokenId, long issuedAtSeconds, long expiresAt) {
+
+        boolean isExpired() {
+            return expiresAt <= System.currentTimeMillis();
+        }
+    }
+}
@@ -173,4 +173,16 @@ CREATE TABLE `file_info` (
                              PRIMARY KEY (`id`),
                              KEY `idx_md5` (`md5`),
                              KEY `idx_upload_user_id` (`upload_user_id`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件信息表';
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件信息表';
+
+-- 认证事件发件箱表
+CREATE TABLE `auth_event_outbox` (
+                                     `id` bigint NOT NULL AUTO_INCREMENT,
+                                     `exchange` varchar(100) NOT NULL COMMENT '交换机',
+                                     `routing_key` varchar(100) NOT NULL COMMENT '路由键',
+                                     `payload` blob NOT NULL COMMENT '消息体',
+                                     `content_type` varchar(100) COMMENT '消息内容类型',
+                                     `headers` varchar(1000) COMMENT '消息头（JSON）',
+                                     `created_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                     PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='认证事件发件箱表';